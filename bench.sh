@@ -0,0 +1,43 @@
+#!/usr/bin/env bash
+# JMH benchmarks of the worker hot path and the protocol (jmh/src/worker), built with Maven
+# into jmh/target/benchmarks.jar. Every trial runs in a forked JVM, with the GC profiler.
+# Usage: ./bench.sh [benchmark regexp...]     (default: all; ./bench.sh -l to list them)
+# Tuning: BENCH_OPTS="-wi 5 -i 10 -r 2s" THREADS="1 2 4 8" ./bench.sh cachePut
+# Benchmarks on shared state (cachePut, TransportBench) run once per thread count in THREADS
+# (default: 1, 2, 4, ... up to the cores); the others on one thread.
+
+# Rebuild (the native library too, for the native backend, if gcc is there)
+native/build.sh || echo "Native library not built; the native backend will fail."
+mvn -B -q package -DskipTests || exit 1
+
+JMH="java -jar jmh/target/benchmarks.jar"
+SHARED='cachePut|TransportBench'
+
+if [ "$1" == "-l" ] || [ "$1" == "--list" ]; then
+    $JMH -l
+    exit 0
+fi
+
+if [ -z "$THREADS" ]; then
+    CORES=$(nproc)
+    for ((t = 1; t < CORES; t *= 2)); do
+        THREADS="$THREADS $t"
+    done
+    THREADS="$THREADS $CORES"
+fi
+
+# JMH takes regexps: anchor each selected name so it matches only itself
+SELECTED=$($JMH -l "$@" | tail -n +2)
+SINGLE=$(echo "$SELECTED" | grep -vE "$SHARED" | sed 's/.*/^&$/')
+CONTENDED=$(echo "$SELECTED" | grep -E "$SHARED" | sed 's/.*/^&$/')
+
+{
+    if [ -n "$SINGLE" ]; then
+        $JMH -prof gc -t 1 $BENCH_OPTS $SINGLE
+    fi
+    if [ -n "$CONTENDED" ]; then
+        for T in $THREADS; do
+            $JMH -prof gc -t "$T" $BENCH_OPTS $CONTENDED
+        done
+    fi
+} 2>&1 | tee bench_output.txt
@@ -0,0 +1,396 @@
+package worker;
+
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.Naming;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import client.CrackerClient;
+import common.Keyspace;
+import common.MasterRepInterface;
+import common.Metrics;
+import common.WorkerCommInterface;
+import server.MockServer;
+
+/**
+ * End-to-end benchmark of one cluster in a single JVM: a MockServer, a CrackerClient and N
+ * WorkerNodes, talking over real RMI on localhost. Each worker can be capped to a hash rate,
+ * and every call between client and workers can be delayed, to model slow machines and a slow
+ * network on one box. A workload of random numbers is published one after the other and the
+ * report gives time-to-solution percentiles, how much of the time each worker sat idle, the
+ * round trip of every protocol call (excluding the injected latency), and how far into each
+ * range's search order the solution was, against how far the order expected it to be.
+ *
+ * Component logs go to cluster.log; the report goes to standard output. Configuration:
+ *   -Dbench.speeds=1e6,1e6,5e5   hashes/s per worker, one entry per worker (0 = uncapped)
+ *   -Dbench.latencyMillis=2      one-way delay added to every client/worker call
+ *   -Dbench.problems=20          numbers to publish
+ *   -Dbench.max=20000000         numbers are drawn from [0, max)
+ *   -Dbench.workload=uniform     uniform: every number equally likely; lengths: the number of
+ *                                digits uniform first, then the number within that length
+ *   -Dbench.seed=1               workload seed
+ *   -Dbench.timeoutSeconds=120   give up on a problem after this long
+ *   -Dbench.joinMillis=0         register the last worker this long after the first problem is
+ *                                published, as a machine booting mid-search (0: at the start)
+ * Client and worker settings (-Dclient.*, -Dworker.*) apply as usual. worker.threads defaults
+ * to 1, and worker.cacheBytes to almost nothing: otherwise later problems are answered from the
+ * digests cached by earlier ones and measure the cache, not the search.
+ */
+public class ClusterBench {
+
+    private static final double[] SPEEDS = Arrays.stream(System.getProperty("bench.speeds", "1e6,1e6,1e6,1e6").split(","))
+            .mapToDouble(Double::parseDouble).toArray();
+    private static final long LATENCY_MILLIS = Long.getLong("bench.latencyMillis", 2);
+    private static final int PROBLEMS = Integer.getInteger("bench.problems", 20);
+    private static final int MAX = Integer.getInteger("bench.max", 20_000_000);
+    private static final String WORKLOAD = System.getProperty("bench.workload", "uniform");
+    private static final long SEED = Long.getLong("bench.seed", 1);
+    private static final long TIMEOUT_SECONDS = Long.getLong("bench.timeoutSeconds", 120);
+    private static final long JOIN_MILLIS = Long.getLong("bench.joinMillis", 0);
+
+    // Round trips per protocol method, in nanoseconds
+    private static final Map<String, List<Long>> CALLS = new ConcurrentHashMap<>();
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("worker.threads") == null) {
+            System.setProperty("worker.threads", "1");
+        }
+        if (System.getProperty("worker.cacheBytes") == null) {
+            System.setProperty("worker.cacheBytes", "64");
+        }
+        PrintStream report = System.out;
+        PrintStream log = new PrintStream(new FileOutputStream("cluster.log"), true);
+        System.setOut(log);
+        System.setErr(log);
+
+        LocateRegistry.createRegistry(1099);
+        BenchServer server = new BenchServer();
+        Naming.rebind("rmi://localhost:1099/server", server);
+        new CrackerClient() { }.start();
+        MasterRepInterface master = (MasterRepInterface) Naming.lookup("rmi://localhost:1099/Master");
+
+        Supplier<Md5Engine> backend = Md5Engines.configured();
+        List<Meter> meters = new ArrayList<>();
+        Thread joiner = null;
+        AtomicLong joinedAt = new AtomicLong();
+        for (double speed : SPEEDS) {
+            Meter meter = new Meter();
+            meters.add(meter);
+            WorkerNode worker = new WorkerNode(() -> new ThrottledEngine(backend.get(), speed, meter));
+            WorkerCommInterface self = worker;
+            if (LATENCY_MILLIS > 0) {
+                // Client -> worker calls arrive at a delaying proxy exported in the worker's place
+                self = delayed(WorkerCommInterface.class, worker, null, null);
+                UnicastRemoteObject.exportObject(self, 0);
+            }
+            MasterRepInterface stub = delayed(MasterRepInterface.class, master, worker, self);
+            if (JOIN_MILLIS > 0 && meters.size() == SPEEDS.length) {
+                joiner = new Thread(() -> {
+                    try {
+                        Thread.sleep(JOIN_MILLIS);
+                        joinedAt.set(System.nanoTime());
+                        worker.start(stub);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }, "bench-joiner");
+                joiner.setDaemon(true);
+            } else {
+                worker.start(stub);
+            }
+        }
+
+        Random random = new Random(SEED);
+        List<Double> seconds = new ArrayList<>();
+        int unsolved = 0;
+        long begin = System.nanoTime();
+        for (Meter meter : meters) {
+            meter.reset();
+        }
+        // Recorded by the client's scheduler, per job
+        Metrics.Histogram expectedShare = Metrics.histogram("client_expected_search_share", "");
+        Metrics.Histogram searchedShare = Metrics.histogram("client_searched_share", "");
+        List<Double> expectedShares = new ArrayList<>();
+        List<Double> searchedShares = new ArrayList<>();
+        for (int i = 0; i < PROBLEMS; i++) {
+            String number = String.valueOf(draw(random));
+            long start = System.nanoTime();
+            double expectedBefore = expectedShare.sum();
+            double searchedBefore = searchedShare.sum();
+            server.expect(number);
+            server.publish(number);
+            if (i == 0 && joiner != null) {
+                joiner.start();
+            }
+            if (server.await(TIMEOUT_SECONDS)) {
+                double elapsed = (System.nanoTime() - start) / 1e9;
+                seconds.add(elapsed);
+                double expected = expectedShare.sum() - expectedBefore;
+                double searched = searchedShare.sum() - searchedBefore;
+                expectedShares.add(expected);
+                searchedShares.add(searched);
+                report.printf("problem %d/%d: %s solved in %.2f s, at %.1f%% of the search order (expected %.1f%%)%n",
+                        i + 1, PROBLEMS, number, elapsed, searched * 100, expected * 100);
+            } else {
+                unsolved++;
+                report.printf("problem %d/%d: %s timed out%n", i + 1, PROBLEMS, number);
+            }
+        }
+        double wall = (System.nanoTime() - begin) / 1e9;
+
+        report.println();
+        report.printf("workers: %d, speeds (h/s): %s, latency: %d ms one-way, threads/worker: %s%n",
+                SPEEDS.length, Arrays.toString(SPEEDS), LATENCY_MILLIS, System.getProperty("worker.threads"));
+        report.printf("workload: %d %s problems in [0, %d), seed %d, %d unsolved, %.1f s total%n", PROBLEMS, WORKLOAD, MAX, SEED, unsolved, wall);
+        report.printf("time to solution (s): p50 %.2f  p90 %.2f  p99 %.2f  max %.2f  mean %.2f%n",
+                percentile(seconds, 50), percentile(seconds, 90), percentile(seconds, 99), percentile(seconds, 100),
+                seconds.stream().mapToDouble(Double::doubleValue).average().orElse(0));
+        // Search time goes with how far into the order the solution is; half way for a blind search
+        double expected = expectedShares.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+        double searched = searchedShares.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+        report.printf("search order %s: solutions at %.1f%% of the order on average, expected %.1f%% (blind: 50%%)%n",
+                System.getProperty("client.order", "random"), searched * 100, expected * 100);
+        report.printf("speed-up over a blind search: actual %.2fx, expected %.2fx%n",
+                searched > 0 ? 0.5 / searched : 0, expected > 0 ? 0.5 / expected : 0);
+        long hashes = 0;
+        for (int i = 0; i < meters.size(); i++) {
+            Meter meter = meters.get(i);
+            hashes += meter.hashes.get();
+            double busy = meter.busyNanos.get() / 1e9;
+            report.printf("worker %d: %,d hashes, busy %.1f s, idle %.1f%%%n", i + 1, meter.hashes.get(), busy, 100 * Math.max(0, 1 - busy / wall));
+        }
+        report.printf("total: %,d hashes, %,.0f hashes/s%n", hashes, hashes / wall);
+        if (joinedAt.get() != 0) {
+            long firstHash = meters.get(meters.size() - 1).firstHashAt.get();
+            report.printf("worker %d joined %.1f s after the first problem was published; first hash %s%n", meters.size(), JOIN_MILLIS / 1e3,
+                    firstHash == 0 ? "never" : String.format("%.0f ms after joining", (firstHash - joinedAt.get()) / 1e6));
+        }
+        report.println("protocol calls (round trip without injected latency, ms):");
+        for (Map.Entry<String, List<Long>> entry : new TreeMap<>(CALLS).entrySet()) {
+            List<Double> millis = new ArrayList<>();
+            synchronized (entry.getValue()) {
+                for (long nanos : entry.getValue()) {
+                    millis.add(nanos / 1e6);
+                }
+            }
+            report.printf("  %-34s %7d calls  p50 %7.3f  p99 %7.3f  max %7.3f%n", entry.getKey(), millis.size(),
+                    percentile(millis, 50), percentile(millis, 99), percentile(millis, 100));
+        }
+        System.exit(0);
+    }
+
+    private static long draw(Random random) {
+        if (!"lengths".equals(WORKLOAD)) {
+            return random.nextInt(MAX);
+        }
+        int digits = String.valueOf(MAX - 1).length();
+        int length = 1 + random.nextInt(digits);
+        long low = length == 1 ? 0 : (long) Math.pow(10, length - 1);
+        long high = Math.min(MAX, (long) Math.pow(10, length));
+        return low + (long) (random.nextDouble() * (high - low));
+    }
+
+    /**
+     * Wraps a remote interface so every call waits LATENCY_MILLIS first and is timed.
+     * Arguments equal to {@code original} are replaced by {@code replacement}, so a worker
+     * always identifies itself with its delayed stand-in.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends Remote> T delayed(Class<T> type, T target, Object original, Object replacement) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(target, args);
+            }
+            if (args != null && original != null) {
+                for (int i = 0; i < args.length; i++) {
+                    if (args[i] == original) {
+                        args[i] = replacement;
+                    }
+                }
+            }
+            if (LATENCY_MILLIS > 0) {
+                Thread.sleep(LATENCY_MILLIS);
+            }
+            long start = System.nanoTime();
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                record(type.getSimpleName().replace("Interface", "") + "." + method.getName(), System.nanoTime() - start);
+            }
+        };
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static void record(String call, long nanos) {
+        List<Long> samples = CALLS.computeIfAbsent(call, c -> new ArrayList<>());
+        synchronized (samples) {
+            samples.add(nanos);
+        }
+    }
+
+    private static double percentile(List<Double> values, double p) {
+        if (values.isEmpty()) {
+            return 0;
+        }
+        double[] sorted = values.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        int index = (int) Math.ceil(p / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * The MockServer, plus a way to wait for the solution of the last published problem.
+     */
+    private static class BenchServer extends MockServer {
+        private String expected;
+        private boolean solved;
+
+        BenchServer() throws RemoteException {
+            super();
+        }
+
+        synchronized void expect(String number) {
+            expected = number;
+            solved = false;
+        }
+
+        synchronized boolean await(long timeoutSeconds) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+            while (!solved) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, left);
+            }
+            return true;
+        }
+
+        @Override
+        public void submitSolution(String name, String sol) throws Exception {
+            super.submitSolution(name, sol);
+            synchronized (this) {
+                if (sol.equals(expected)) {
+                    solved = true;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Hashing and busy time of one worker.
+     */
+    private static class Meter {
+        final AtomicLong hashes = new AtomicLong();
+        final AtomicLong busyNanos = new AtomicLong();
+        final AtomicLong firstHashAt = new AtomicLong();
+
+        void reset() {
+            hashes.set(0);
+            busyNanos.set(0);
+            firstHashAt.set(0);
+        }
+    }
+
+    /**
+     * An engine capped to a hash rate, which counts its hashes and the time spent hashing.
+     */
+    private static class ThrottledEngine implements Md5Engine {
+        private final Md5Engine engine;
+        private final double hashesPerSecond;
+        private final Meter meter;
+        private long startedAt;
+        private long done;
+
+        ThrottledEngine(Md5Engine engine, double hashesPerSecond, Meter meter) {
+            this.engine = engine;
+            this.hashesPerSecond = hashesPerSecond;
+            this.meter = meter;
+        }
+
+        @Override
+        public String name() {
+            return engine.name();
+        }
+
+        @Override
+        public int lanes() {
+            return engine.lanes();
+        }
+
+        @Override
+        public void seek(Keyspace keyspace, long index) {
+            engine.seek(keyspace, index);
+            startedAt = System.nanoTime();
+            done = 0;
+        }
+
+        @Override
+        public void hash() {
+            long start = System.nanoTime();
+            engine.hash();
+            done += engine.lanes();
+            if (hashesPerSecond > 0) {
+                // Sleep until this many hashes would have taken at the capped rate
+                long due = startedAt + (long) (done * 1e9 / hashesPerSecond);
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            meter.firstHashAt.compareAndSet(0, start);
+            meter.hashes.addAndGet(engine.lanes());
+            meter.busyNanos.addAndGet(System.nanoTime() - start);
+        }
+
+        @Override
+        public void next() {
+            engine.next();
+        }
+
+        @Override
+        public int h0(int lane) {
+            return engine.h0(lane);
+        }
+
+        @Override
+        public int h1(int lane) {
+            return engine.h1(lane);
+        }
+
+        @Override
+        public int h2(int lane) {
+            return engine.h2(lane);
+        }
+
+        @Override
+        public int h3(int lane) {
+            return engine.h3(lane);
+        }
+
+        @Override
+        public String candidate(int lane) {
+            return engine.candidate(lane);
+        }
+    }
+}
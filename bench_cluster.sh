@@ -0,0 +1,19 @@
+#!/usr/bin/env bash
+# End-to-end cluster benchmark: MockServer, CrackerClient and N workers in one JVM (see
+# bench/worker/ClusterBench.java for the options). Component logs go to cluster.log.
+# Usage: ./bench_cluster.sh [-Dname=value...]
+# Example: ./bench_cluster.sh -Dbench.speeds=2e6,2e6,5e5 -Dbench.latencyMillis=20 -Dclient.pipeline=1
+
+# Rebuild
+rm -rf bin
+mkdir -p bin
+javac --add-modules jdk.incubator.vector,jdk.incubator.foreign -d bin src/common/*.java src/server/*.java src/client/*.java src/worker/*.java || exit 1
+javac --add-modules jdk.incubator.vector,jdk.incubator.foreign -cp bin -d bin bench/worker/*.java || exit 1
+
+# Make sure nothing else holds the registry port
+pkill -f "java.*MockServer"
+pkill -f "java.*CrackerClient"
+pkill -f "java.*ClusterBench"
+sleep 1
+
+java --add-modules jdk.incubator.vector,jdk.incubator.foreign --enable-native-access=ALL-UNNAMED "$@" -cp bin worker.ClusterBench | tee bench_output.txt
@@ -0,0 +1,49 @@
+#!/usr/bin/env bash
+# Sustained load on the whole pipeline: a MockServer publishes a stream of problems (the
+# "load" command, see src/server/LoadGenerator.java) to several teams, each a CrackerClient
+# with its own workers, and writes per-problem publish-to-submit latency to load_report.csv.
+# Usage: ./bench_load.sh [-Dload.name=value...]       (options for the MockServer)
+# Example: TEAMS=3 WORKERS=2 ./bench_load.sh -Dload.problems=50 -Dload.rate=2
+# Client and worker options: CLIENT_OPTS="-Dclient.pipeline=1" WORKER_OPTS="-Dworker.threads=1"
+
+TEAMS=${TEAMS:-2}
+WORKERS=${WORKERS:-1}
+
+# Rebuild
+rm -rf bin
+mkdir -p bin
+javac --add-modules jdk.incubator.vector,jdk.incubator.foreign -d bin src/common/*.java src/server/*.java src/client/*.java src/worker/*.java || exit 1
+
+# Kill any existing java processes
+pkill -f "java.*MockServer"
+pkill -f "java.*CrackerClient"
+pkill -f "java.*WorkerNode"
+sleep 1
+
+# The load starts once every team has all its workers; the server exits when it is done
+rm -f client[0-9]*.log worker[0-9]*-*.log
+echo "Starting MockServer..."
+(until [ "$(cat client[0-9]*.log 2>/dev/null | grep -c "Total workers: $WORKERS")" -ge "$TEAMS" ]; do sleep 1; done
+ echo "load") | java "$@" -cp bin server.MockServer > server.log 2>&1 &
+SERVER_PID=$!
+sleep 2
+
+# Each team gets its own registry port for its workers
+PIDS=""
+for TEAM in $(seq 1 "$TEAMS"); do
+    PORT=$((1100 + TEAM))
+    echo "Starting team-$TEAM (port $PORT, $WORKERS worker(s))..."
+    java $CLIENT_OPTS -Dclient.team="team-$TEAM" -Dclient.port=$PORT -cp bin client.CrackerClient localhost > "client$TEAM.log" 2>&1 &
+    PIDS="$PIDS $!"
+    sleep 2
+    for WORKER in $(seq 1 "$WORKERS"); do
+        java --add-modules jdk.incubator.vector,jdk.incubator.foreign --enable-native-access=ALL-UNNAMED $WORKER_OPTS -Dworker.masterPort=$PORT -cp bin worker.WorkerNode localhost > "worker$TEAM-$WORKER.log" 2>&1 &
+        PIDS="$PIDS $!"
+    done
+done
+
+wait $SERVER_PID
+sed -n '/^Load finished/,/^Report written/p' server.log | tee bench_output.txt
+
+echo "Killing processes..."
+kill $PIDS
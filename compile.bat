@@ -1,5 +1,5 @@
 @echo off
 if not exist bin mkdir bin
-javac -d bin -sourcepath src src/server/*.java src/client/*.java src/worker/*.java src/common/*.java
+javac --add-modules jdk.incubator.vector,jdk.incubator.foreign -d bin -sourcepath src src/server/*.java src/client/*.java src/worker/*.java src/common/*.java
 echo Compilation finished.
 pause
@@ -4,6 +4,9 @@
 mkdir -p bin
 
 # Compile all Java files
-javac -d bin -sourcepath src src/server/*.java src/client/*.java src/worker/*.java src/common/*.java
+javac --add-modules jdk.incubator.vector,jdk.incubator.foreign -d bin -sourcepath src src/server/*.java src/client/*.java src/worker/*.java src/common/*.java
+
+# Native hashing backend (optional: needs gcc; workers fall back to Java without it)
+native/build.sh || echo "Native library not built."
 
 echo "Compilation finished."
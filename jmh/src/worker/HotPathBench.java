@@ -0,0 +1,218 @@
+package worker;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import common.Keyspaces;
+
+/**
+ * JMH benchmarks of the worker hot path, in candidates per second. Run through bench.sh;
+ * each trial runs in a fresh JVM, so JIT profiles of one do not leak into the next.
+ *
+ * cachePut shares one cache between all benchmark threads: run it with -t 1, 2, 4, ... to
+ * see the contention (bench.sh does).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector,jdk.incubator.foreign", "--enable-native-access=ALL-UNNAMED"})
+public class HotPathBench {
+
+    // Candidates per invocation: one MIN_GRAIN leaf of WorkerNode
+    static final int BATCH = 1 << 14;
+    // Starting point of the swept candidates: 9-digit numbers, as in a typical problem
+    private static final long FIRST = 100_000_000L;
+
+    private static Supplier<Md5Engine> engines(String backend) {
+        switch (backend) {
+            case "scalar":
+                return ScalarMd5Engine::new;
+            case "vector":
+                return VectorMd5Engine::new;
+            case "native":
+                return NativeMd5Engine::new;
+            default:
+                throw new IllegalArgumentException("Unknown backend: " + backend);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Search {
+        @Param({"scalar", "vector", "native"})
+        String backend;
+        DigestCache cache;
+        TargetSet targets;
+        Md5Engine engine;
+        long next = FIRST;
+
+        @Setup
+        public void setUp() {
+            cache = new DigestCache(64L << 20);
+            targets = new TargetSet(new long[]{1}, new byte[][]{md5("-1")});
+            engine = engines(backend).get();
+        }
+    }
+
+    // The loop of WorkerNode.searchRange: hash, cache, index-free target check, no match
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int search(Search s) {
+        Md5Engine engine = s.engine;
+        int lanes = engine.lanes();
+        long start = s.next;
+        long end = start + BATCH - 1;
+        s.next = end + 1;
+        int found = 0;
+        engine.seek(Keyspaces.DECIMAL, start);
+        for (long base = start; base <= end; base += lanes, engine.next()) {
+            engine.hash();
+            int count = (int) Math.min(lanes, end - base + 1);
+            for (int lane = 0; lane < count; lane++) {
+                long k0 = DigestCache.key(engine.h0(lane), engine.h1(lane));
+                long k1 = DigestCache.key(engine.h2(lane), engine.h3(lane));
+                s.cache.put(k0, k1, base + lane);
+                found += s.targets.indexOf(k0, k1);
+            }
+        }
+        return found;
+    }
+
+    @State(Scope.Thread)
+    public static class Hashing {
+        @Param({"scalar", "vector", "native"})
+        String backend;
+        Md5Engine engine;
+        long next = FIRST;
+
+        @Setup
+        public void setUp() {
+            engine = engines(backend).get();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void hash(Hashing h, Blackhole bh) {
+        Md5Engine engine = h.engine;
+        int lanes = engine.lanes();
+        engine.seek(Keyspaces.DECIMAL, h.next);
+        h.next += BATCH;
+        for (int i = 0; i < BATCH; i += lanes, engine.next()) {
+            engine.hash();
+            for (int lane = 0; lane < lanes; lane++) {
+                bh.consume(engine.h0(lane));
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Digests {
+        final MessageDigest md = newMd5();
+        final byte[] target = md5("-1");
+        final String targetHex = toHex(target);
+        long next = FIRST;
+    }
+
+    // The hashing of the original searchRange: one String and one digest array per candidate
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void hashMessageDigest(Digests d, Blackhole bh) {
+        long start = d.next;
+        d.next += BATCH;
+        for (long v = start; v < start + BATCH; v++) {
+            bh.consume(d.md.digest(Long.toString(v).getBytes(StandardCharsets.US_ASCII)));
+        }
+    }
+
+    // Comparing each digest to the target as a hex string, as the original check did
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void compareHex(Digests d, Blackhole bh) {
+        long start = d.next;
+        d.next += BATCH;
+        for (long v = start; v < start + BATCH; v++) {
+            byte[] digest = d.md.digest(Long.toString(v).getBytes(StandardCharsets.US_ASCII));
+            bh.consume(toHex(digest).equals(d.targetHex));
+        }
+    }
+
+    // The same comparison on the raw bytes
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void compareRaw(Digests d, Blackhole bh) {
+        long start = d.next;
+        d.next += BATCH;
+        for (long v = start; v < start + BATCH; v++) {
+            byte[] digest = d.md.digest(Long.toString(v).getBytes(StandardCharsets.US_ASCII));
+            bh.consume(Arrays.equals(digest, d.target));
+        }
+    }
+
+    // One cache for every benchmark thread
+    @State(Scope.Benchmark)
+    public static class SharedCache {
+        final DigestCache cache = new DigestCache(64L << 20);
+    }
+
+    @State(Scope.Thread)
+    public static class Keys {
+        long seed = System.nanoTime();
+    }
+
+    // Puts of well-spread keys into the shared cache
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void cachePut(SharedCache shared, Keys keys) {
+        long x = keys.seed;
+        for (int i = 0; i < BATCH; i++) {
+            x += 0x9e3779b97f4a7c15L;
+            long k0 = mix(x);
+            shared.cache.put(k0, mix(k0), x);
+        }
+        keys.seed = x;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    // As in the original WorkerNode
+    private static String toHex(byte[] bytes) {
+        BigInteger bi = new BigInteger(1, bytes);
+        return String.format("%032x", bi);
+    }
+
+    private static byte[] md5(String input) {
+        return newMd5().digest(input.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
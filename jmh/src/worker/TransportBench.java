@@ -0,0 +1,167 @@
+package worker;
+
+import java.io.IOException;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import client.BinaryMasterServer;
+import common.Keyspaces;
+import common.MasterRepInterface;
+import common.SearchTask;
+import common.WorkerCommInterface;
+
+/**
+ * Round trips of the master-worker protocol on loopback, over RMI and over the binary
+ * transport, against endpoints that do nothing. Each op is one call: reportProgress from a
+ * worker to the master, or enqueue of a one-job task from the master to a worker. All
+ * benchmark threads share one connection, as a master's dispatch threads share a worker's:
+ * run with -t 1, 2, 4, ... to see the contention (bench.sh does).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector,jdk.incubator.foreign"})
+@State(Scope.Benchmark)
+public class TransportBench {
+
+    private static final SearchTask TASK = new SearchTask(1, Keyspaces.DECIMAL.spec(), 0, 1 << 20, new long[]{1}, new byte[][]{new byte[16]});
+
+    @Param({"rmi", "binary"})
+    String transport;
+    private Endpoints endpoints;
+
+    @Setup(Level.Trial)
+    public void connect() throws Exception {
+        endpoints = transport.equals("binary") ? binary() : rmi();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        endpoints.close();
+    }
+
+    @Benchmark
+    public void progress() throws RemoteException {
+        endpoints.master.reportProgress(null, 1, 1);
+    }
+
+    @Benchmark
+    public void enqueue() throws RemoteException {
+        endpoints.worker.enqueue(TASK);
+    }
+
+    // A master as the worker sees it, and that worker as the master sees it
+    private static class Endpoints {
+        MasterRepInterface master;
+        WorkerCommInterface worker;
+        // RMI only references exported objects weakly
+        Remote[] exported = {};
+        BinaryMasterServer server;
+
+        // Exported objects and open links would keep the JVM alive
+        void close() throws IOException {
+            for (Remote object : exported) {
+                UnicastRemoteObject.unexportObject(object, true);
+            }
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    private static Endpoints rmi() throws RemoteException {
+        Endpoints endpoints = new Endpoints();
+        NoopMaster master = new NoopMaster(new CompletableFuture<>());
+        NoopWorker worker = new NoopWorker();
+        endpoints.exported = new Remote[]{master, worker};
+        endpoints.master = (MasterRepInterface) UnicastRemoteObject.exportObject(master, 0);
+        endpoints.worker = (WorkerCommInterface) UnicastRemoteObject.exportObject(worker, 0);
+        return endpoints;
+    }
+
+    private static Endpoints binary() throws Exception {
+        CompletableFuture<WorkerCommInterface> registered = new CompletableFuture<>();
+        BinaryMasterServer server = new BinaryMasterServer(new NoopMaster(registered), 0, 10_000);
+        BinaryMasterLink link = BinaryMasterLink.connect("localhost", server.port(), 10_000);
+        link.registerWorker(new NoopWorker(), "none", 0);
+        Endpoints endpoints = new Endpoints();
+        endpoints.server = server;
+        endpoints.master = link;
+        endpoints.worker = registered.get();
+        return endpoints;
+    }
+
+    private static class NoopMaster implements MasterRepInterface {
+        private final CompletableFuture<WorkerCommInterface> registered;
+
+        NoopMaster(CompletableFuture<WorkerCommInterface> registered) {
+            this.registered = registered;
+        }
+
+        @Override
+        public void registerWorker(WorkerCommInterface worker, String backend, double hashesPerSecond) {
+            registered.complete(worker);
+        }
+
+        @Override
+        public void submitInternalSolution(long jobId, String solution) {
+        }
+
+        @Override
+        public void taskCompleted(WorkerCommInterface worker, long taskId) {
+        }
+
+        @Override
+        public void reportProgress(WorkerCommInterface worker, long taskId, long checkpoint) {
+        }
+
+        @Override
+        public void reportCapacity(WorkerCommInterface worker, String backend, double hashesPerSecond) {
+        }
+    }
+
+    private static class NoopWorker implements WorkerCommInterface {
+        @Override
+        public void solve(SearchTask task) {
+        }
+
+        @Override
+        public void enqueue(SearchTask task) {
+        }
+
+        @Override
+        public String[] lookup(String keyspace, byte[][] hashes) {
+            return new String[hashes.length];
+        }
+
+        @Override
+        public void truncate(long taskId, long end) {
+        }
+
+        @Override
+        public void cancel(long jobId) {
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+}
@@ -13,12 +13,14 @@ SERVER_IP=$1
 # Create bin and compile
 mkdir -p bin
 echo "Compiling..."
-javac -d bin -sourcepath src src/server/*.java src/client/*.java src/worker/*.java src/common/*.java
+javac --add-modules jdk.incubator.vector,jdk.incubator.foreign -d bin -sourcepath src src/server/*.java src/client/*.java src/worker/*.java src/common/*.java
 
 if [ $? -ne 0 ]; then
     echo "Compilation failed!"
     exit 1
 fi
+# Optional: the native hashing backend, picked at startup if it is the fastest here
+native/build.sh || echo "Native library not built; the worker will use a Java backend."
 
 echo "--- Starting Client (connecting to $SERVER_IP) ---"
 java -cp bin client.CrackerClient $SERVER_IP > client.log 2>&1 &
@@ -28,7 +30,8 @@ echo "Client started with PID $CLIENT_PID. Logs: client.log"
 sleep 5
 
 echo "--- Starting Worker (connecting to localhost) ---"
-java -cp bin worker.WorkerNode localhost > worker.log 2>&1 &
+# From a class-data-sharing archive, warmed up before it registers (see start_worker.sh)
+./start_worker.sh localhost > worker.log 2>&1 &
 WORKER_PID=$!
 echo "Worker started with PID $WORKER_PID. Logs: worker.log"
 
@@ -0,0 +1,6 @@
+#!/bin/bash
+# Builds the native hashing library for this machine (used with -Dworker.backend=native|auto).
+# -march=native lets the compiler vectorize the lane loops for the local CPU, so build it on
+# (or for) the machine that runs the worker.
+cd "$(dirname "$0")"
+gcc -O3 -march=native -shared -fPIC -o libmd5batch.so md5batch.c && echo "Built native/libmd5batch.so"
@@ -0,0 +1,187 @@
+/*
+ * Multi-lane MD5 of consecutive candidates, for the worker's native backend
+ * (worker.NativeMd5Engine). One call hashes `count` candidates from index `first` and
+ * writes the four state words of candidate i to out[4 * i .. 4 * i + 3]. md5_batch takes
+ * the decimal keyspace (index = number), md5_batch_mask a mask (see common.Keyspaces).
+ *
+ * Candidates are hashed LANES at a time. Every round step is a loop over the lanes, which
+ * the compiler turns into SIMD code for the target (AVX2 / AVX-512 on x86, NEON on ARM),
+ * so build with optimizations for the machine it runs on: see build.sh.
+ */
+#include <stdint.h>
+#include <string.h>
+
+/* Several vectors per step (two with AVX2): their independent chains hide each other's latency */
+#define LANES 32
+
+static const uint32_t K[64] = {
+    0xd76aa478, 0xe8c7b756, 0x242070db, 0xc1bdceee, 0xf57c0faf, 0x4787c62a, 0xa8304613, 0xfd469501,
+    0x698098d8, 0x8b44f7af, 0xffff5bb1, 0x895cd7be, 0x6b901122, 0xfd987193, 0xa679438e, 0x49b40821,
+    0xf61e2562, 0xc040b340, 0x265e5a51, 0xe9b6c7aa, 0xd62f105d, 0x02441453, 0xd8a1e681, 0xe7d3fbc8,
+    0x21e1cde6, 0xc33707d6, 0xf4d50d87, 0x455a14ed, 0xa9e3e905, 0xfcefa3f8, 0x676f02d9, 0x8d2a4c8a,
+    0xfffa3942, 0x8771f681, 0x6d9d6122, 0xfde5380c, 0xa4beea44, 0x4bdecfa9, 0xf6bb4b60, 0xbebfbc70,
+    0x289b7ec6, 0xeaa127fa, 0xd4ef3085, 0x04881d05, 0xd9d4d039, 0xe6db99e5, 0x1fa27cf8, 0xc4ac5665,
+    0xf4292244, 0x432aff97, 0xab9423a7, 0xfc93a039, 0x655b59c3, 0x8f0ccc92, 0xffeff47d, 0x85845dd1,
+    0x6fa87e4f, 0xfe2ce6e0, 0xa3014314, 0x4e0811a1, 0xf7537e82, 0xbd3af235, 0x2ad7d2bb, 0xeb86d391
+};
+
+static const int S[64] = {
+    7, 12, 17, 22, 7, 12, 17, 22, 7, 12, 17, 22, 7, 12, 17, 22,
+    5, 9, 14, 20, 5, 9, 14, 20, 5, 9, 14, 20, 5, 9, 14, 20,
+    4, 11, 16, 23, 4, 11, 16, 23, 4, 11, 16, 23, 4, 11, 16, 23,
+    6, 10, 15, 21, 6, 10, 15, 21, 6, 10, 15, 21, 6, 10, 15, 21
+};
+
+/* Bytes per position in the character sets of a mask; every set is printable ASCII */
+#define SET_STRIDE 128
+
+/*
+ * The current candidate in its padded MD5 block, incremented in place. For a mask, `sizes`
+ * and `sets` describe each position and `ranks` holds the place of each character in its
+ * set; for decimal candidates `sizes` is NULL.
+ */
+typedef struct {
+    uint8_t bytes[64];
+    int length;
+    const int32_t *sizes;
+    const uint8_t *sets;
+    int32_t ranks[56];
+} counter;
+
+static void set_length(counter *c, int length) {
+    uint64_t bits = (uint64_t) length * 8;
+    c->length = length;
+    c->bytes[length] = 0x80;
+    for (int i = 0; i < 8; i++) {
+        c->bytes[56 + i] = (uint8_t) (bits >> (8 * i));
+    }
+}
+
+static void seek(counter *c, uint64_t value) {
+    char digits[20];
+    int length = 0;
+    do {
+        digits[19 - length++] = (char) ('0' + value % 10);
+        value /= 10;
+    } while (value != 0);
+    memset(c->bytes, 0, sizeof c->bytes);
+    memcpy(c->bytes, digits + 20 - length, length);
+    set_length(c, length);
+}
+
+/* Mixed radix, last position fastest; wraps around after the last candidate */
+static void seek_mask(counter *c, uint64_t index, int length, const int32_t *sizes, const uint8_t *sets) {
+    memset(c->bytes, 0, sizeof c->bytes);
+    c->sizes = sizes;
+    c->sets = sets;
+    for (int p = length - 1; p >= 0; p--) {
+        c->ranks[p] = (int32_t) (index % (uint64_t) sizes[p]);
+        c->bytes[p] = sets[p * SET_STRIDE + c->ranks[p]];
+        index /= (uint64_t) sizes[p];
+    }
+    set_length(c, length);
+}
+
+static void increment(counter *c) {
+    if (c->sizes != NULL) {
+        for (int p = c->length - 1; p >= 0; p--) {
+            if (++c->ranks[p] < c->sizes[p]) {
+                c->bytes[p] = c->sets[p * SET_STRIDE + c->ranks[p]];
+                return;
+            }
+            c->ranks[p] = 0;
+            c->bytes[p] = c->sets[p * SET_STRIDE];
+        }
+        return;
+    }
+    int i = c->length - 1;
+    while (i >= 0 && c->bytes[i] == '9') {
+        c->bytes[i--] = '0';
+    }
+    if (i >= 0) {
+        c->bytes[i]++;
+        return;
+    }
+    /* 99..9 -> 100..0: one more digit, over the old terminator */
+    memmove(c->bytes + 1, c->bytes, c->length);
+    c->bytes[0] = '1';
+    set_length(c, c->length + 1);
+}
+
+static inline int message_index(int step) {
+    if (step < 16) return step;
+    if (step < 32) return (5 * step + 1) & 15;
+    if (step < 48) return (3 * step + 5) & 15;
+    return (7 * step) & 15;
+}
+
+/* Sixteen steps from `from` with round function F; the lane loop is what gets vectorized */
+#define ROUND(from, F)                                                   \
+    for (int step = from; step < from + 16; step++) {                    \
+        const uint32_t *x = m[message_index(step)];                      \
+        const uint32_t k = K[step];                                      \
+        const int s = S[step];                                           \
+        for (int l = 0; l < LANES; l++) {                                \
+            uint32_t f = F;                                              \
+            uint32_t t = a[l] + f + k + x[l];                            \
+            a[l] = d[l];                                                 \
+            d[l] = c[l];                                                 \
+            c[l] = b[l];                                                 \
+            b[l] = b[l] + ((t << s) | (t >> (32 - s)));                  \
+        }                                                                \
+    }
+
+/* One compression of LANES blocks held in columns (word w of every lane side by side) */
+static void compress(uint32_t m[16][LANES], uint32_t *out, int lanes) {
+    uint32_t a[LANES], b[LANES], c[LANES], d[LANES];
+    for (int l = 0; l < LANES; l++) {
+        a[l] = 0x67452301;
+        b[l] = 0xefcdab89;
+        c[l] = 0x98badcfe;
+        d[l] = 0x10325476;
+    }
+    ROUND(0, (b[l] & c[l]) | (~b[l] & d[l]))
+    ROUND(16, (d[l] & b[l]) | (~d[l] & c[l]))
+    ROUND(32, b[l] ^ c[l] ^ d[l])
+    ROUND(48, c[l] ^ (b[l] | ~d[l]))
+    for (int l = 0; l < lanes; l++) {
+        out[4 * l] = a[l] + 0x67452301;
+        out[4 * l + 1] = b[l] + 0xefcdab89;
+        out[4 * l + 2] = c[l] + 0x98badcfe;
+        out[4 * l + 3] = d[l] + 0x10325476;
+    }
+}
+
+static void batch(counter *c, int32_t count, uint32_t *out) {
+    uint32_t m[16][LANES];
+    uint32_t words[16];
+    for (int32_t done = 0; done < count; done += LANES) {
+        int lanes = count - done < LANES ? count - done : LANES;
+        for (int l = 0; l < LANES; l++) {
+            /* Message words are little-endian, as on x86 and ARM */
+            memcpy(words, c->bytes, sizeof words);
+            for (int w = 0; w < 16; w++) {
+                m[w][l] = words[w];
+            }
+            if (l < lanes - 1) {
+                increment(c);
+            }
+        }
+        compress(m, out + 4 * done, lanes);
+        increment(c);
+    }
+}
+
+void md5_batch(int64_t first, int32_t count, uint32_t *out) {
+    counter c;
+    c.sizes = NULL;
+    seek(&c, (uint64_t) first);
+    batch(&c, count, out);
+}
+
+/* `length` positions; position p draws from sets[p * SET_STRIDE .. p * SET_STRIDE + sizes[p] - 1] */
+void md5_batch_mask(int64_t first, int32_t count, uint32_t *out, int32_t length, const int32_t *sizes, const uint8_t *sets) {
+    counter c;
+    seek_mask(&c, (uint64_t) first, length, sizes, sets);
+    batch(&c, count, out);
+}
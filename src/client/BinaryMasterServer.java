@@ -0,0 +1,131 @@
+package client;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.rmi.RemoteException;
+
+import common.BinaryLink;
+import common.MasterRepInterface;
+import common.SearchTask;
+import common.WorkerCommInterface;
+
+/**
+ * Accepts workers over the binary transport and connects them to the same MasterRepInterface
+ * the RMI workers use. Each connection becomes a WorkerCommInterface proxy, which the master
+ * schedules like any other worker; RMI and binary workers can be mixed.
+ */
+public class BinaryMasterServer {
+
+    private final MasterRepInterface master;
+    private final ServerSocketChannel server;
+    private final long timeoutMillis;
+
+    /**
+     * @param port Port to listen on, 0 for any free one
+     * @param timeoutMillis How long a call to a worker waits for its reply
+     */
+    public BinaryMasterServer(MasterRepInterface master, int port, long timeoutMillis) throws IOException {
+        this.master = master;
+        this.timeoutMillis = timeoutMillis;
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        Thread acceptor = new Thread(this::accept, "binary-master-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int port() {
+        return server.socket().getLocalPort();
+    }
+
+    public void close() throws IOException {
+        server.close();
+    }
+
+    private void accept() {
+        while (server.isOpen()) {
+            try {
+                SocketChannel channel = server.accept();
+                BinaryLink link = new BinaryLink(channel, timeoutMillis);
+                RemoteWorker worker = new RemoteWorker(link);
+                // A dropped connection is noticed by the lease, as with RMI workers
+                link.onClose(() -> System.err.println("Binary link to a worker closed."));
+                link.start((type, payload) -> handle(worker, type, payload));
+            } catch (IOException e) {
+                if (server.isOpen()) {
+                    System.err.println("Failed to accept a worker: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private ByteBuffer handle(RemoteWorker worker, byte type, ByteBuffer payload) throws RemoteException {
+        switch (type) {
+            case BinaryLink.REGISTER:
+                double measured = payload.getDouble();
+                master.registerWorker(worker, BinaryLink.getString(payload), measured);
+                break;
+            case BinaryLink.FOUND:
+                long jobId = payload.getLong();
+                master.submitInternalSolution(jobId, BinaryLink.getString(payload));
+                break;
+            case BinaryLink.COMPLETED:
+                master.taskCompleted(worker, payload.getLong());
+                break;
+            case BinaryLink.PROGRESS:
+                master.reportProgress(worker, payload.getLong(), payload.getLong());
+                break;
+            case BinaryLink.CAPACITY:
+                double hashesPerSecond = payload.getDouble();
+                master.reportCapacity(worker, BinaryLink.getString(payload), hashesPerSecond);
+                break;
+            default:
+                throw new IllegalArgumentException("Unexpected frame type " + type);
+        }
+        return null;
+    }
+
+    /**
+     * A worker on the other end of a binary link.
+     */
+    private static class RemoteWorker implements WorkerCommInterface {
+        private final BinaryLink link;
+
+        RemoteWorker(BinaryLink link) {
+            this.link = link;
+        }
+
+        @Override
+        public void solve(SearchTask task) throws RemoteException {
+            link.call(BinaryLink.SOLVE, BinaryLink.task(task));
+        }
+
+        @Override
+        public void enqueue(SearchTask task) throws RemoteException {
+            link.call(BinaryLink.ENQUEUE, BinaryLink.task(task));
+        }
+
+        @Override
+        public String[] lookup(String keyspace, byte[][] hashes) throws RemoteException {
+            return BinaryLink.getStrings(link.call(BinaryLink.LOOKUP, BinaryLink.lookup(keyspace, hashes)));
+        }
+
+        @Override
+        public void truncate(long taskId, long end) throws RemoteException {
+            link.call(BinaryLink.TRUNCATE, BinaryLink.longs(taskId, end));
+        }
+
+        @Override
+        public void cancel(long jobId) throws RemoteException {
+            link.call(BinaryLink.CANCEL, BinaryLink.longs(jobId));
+        }
+
+        @Override
+        public void stop() throws RemoteException {
+            link.call(BinaryLink.STOP, BinaryLink.empty());
+        }
+    }
+}
@@ -0,0 +1,663 @@
+package client;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import common.Metrics;
+import common.WorkerCommInterface;
+
+/**
+ * Splits the search ranges of the open jobs into chunks sized to each worker's measured speed.
+ * Every chunk is meant to take about {@code TARGET_CHUNK_MILLIS} on the worker that gets it,
+ * but never more than a share of what is left (guided self-scheduling), so chunks shrink
+ * towards the end of the range and the last ones finish close together.
+ *
+ * A worker may hold several chunks: the one it is searching and the ones queued behind it.
+ * Once the range is exhausted, an idle worker (say, one that just joined) takes over the upper
+ * part of the in-flight chunk with the most left to check. Failing that, it re-runs the
+ * remainder of the chunk expected to finish last; whichever copy finishes first completes it.
+ *
+ * Several jobs can be open at once. Chunks are cut from the first job (in priority order) with
+ * work left, and every other job still needing part of the chunk rides along: the worker checks
+ * all their targets in the same sweep, so overlapping jobs are searched only once.
+ *
+ * Worker speeds are kept across problems. Not thread-safe, except for {@link #progress}:
+ * CrackerClient calls everything else under its own lock.
+ */
+class ChunkScheduler {
+
+    // Target duration of one chunk (-Dclient.chunkMillis)
+    private static final long TARGET_CHUNK_MILLIS = Long.getLong("client.chunkMillis", 2000);
+    // Each chunk is at most 1/(GUIDED_FACTOR * workers) of the remaining range
+    private static final int GUIDED_FACTOR = 2;
+    private static final long MIN_CHUNK = 1 << 16;
+    // Assumed speed of a worker that has neither reported its capacity nor completed a chunk
+    private static final double DEFAULT_RATE = 1_000_000;
+    // Completions faster than this (e.g. cache hits) say nothing about speed
+    private static final long MIN_SAMPLE_NANOS = 50_000_000L;
+    static final Metrics.Histogram CHUNK_SECONDS =
+            Metrics.histogram("client_chunk_seconds", "Time from a chunk reaching the head of its worker's queue to its completion");
+    static final Metrics.Histogram EXPECTED_SHARE = Metrics.histogram("client_expected_search_share",
+            "Share of a job's range expected to be searched before its solution, under the search order's assumptions");
+    static final Metrics.Histogram SEARCHED_SHARE = Metrics.histogram("client_searched_share",
+            "Share of a job's range that its search order put before the solution");
+
+    // Traversal order of each job's range (-Dclient.order, see SearchOrders)
+    private final SearchOrder order = SearchOrders.configured();
+
+    // Open jobs, highest priority first
+    private final List<Job> jobs = new ArrayList<>();
+    private long nextChunkId = 1;
+    // Hashes per second, per worker
+    private final Map<WorkerCommInterface, Double> rates = new HashMap<>();
+    // Chunks per worker in the order the worker searches them; the first one is running (a
+    // dropped copy stays first until the worker reports it)
+    private final Map<WorkerCommInterface, Deque<Chunk>> inFlight = new HashMap<>();
+    // The same chunks by id, for progress reports that arrive without the lock
+    private final Map<Long, Chunk> live = new ConcurrentHashMap<>();
+
+    private static class Job {
+        final long id;
+        final long start;
+        final long end;
+        // Highest value still wanted: end, or less once truncated
+        long last;
+        // Remaining regions, in traversal order. Chunks are cut from the front.
+        final Deque<long[]> regions = new ArrayDeque<>();
+        // The regions as first planned
+        final List<long[]> plan = new ArrayList<>();
+        long remaining;
+
+        Job(long id, long start, long end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.last = end;
+            this.remaining = end - start + 1;
+        }
+    }
+
+    /**
+     * A chunk assigned to a worker. A speculative copy and its original point at each other.
+     */
+    static class Chunk {
+        final long id;
+        final WorkerCommInterface owner;
+        final long start;
+        // Pulled in when the upper part is split off to another worker
+        volatile long end;
+        // Jobs whose targets are checked in this chunk
+        long[] jobIds;
+        // The {start, end} pieces of each job's regions this chunk took: all of it for the job
+        // it was cut from, only what was still unassigned for the riders. A failed chunk gives
+        // back exactly these.
+        Map<Long, List<long[]>> taken;
+        // When the worker started on it: set once the chunk reaches the front of its queue
+        volatile long startedAt;
+        // Last progress report; the worker loses the chunk if this gets older than the lease
+        volatile long lastHeard;
+        // Highest value known to be checked; start - 1 until the worker reports progress
+        volatile long checkpoint;
+        Chunk twin;
+        // Set on the copy left over when its twin finished first. It has nothing left to check
+        // and holds no job open, but stays queued until its worker, told to stop it, reports
+        // it: only then does the worker move on to the chunk behind it, and that chunk's lease
+        // start. It keeps its jobIds, as the worker skips it without a report once they close.
+        boolean dropped;
+        // Set on a chunk split off another one: the chunk whose owner must stop short of it
+        Chunk donor;
+
+        Chunk(long id, WorkerCommInterface owner, long start, long end, long[] jobIds, Map<Long, List<long[]>> taken) {
+            this.id = id;
+            this.owner = owner;
+            this.start = start;
+            this.end = end;
+            this.jobIds = jobIds;
+            this.taken = taken;
+            this.checkpoint = start - 1;
+        }
+    }
+
+    /**
+     * Opens a job over [start, end].
+     * @param first true to search it ahead of the open jobs, false to queue it behind them
+     */
+    void addJob(long jobId, long start, long end, boolean first) {
+        Job job = new Job(jobId, start, end);
+        List<long[]> split = order.regions(start, end);
+        double expected = SearchOrders.expectedShare(order, start, end, split);
+        EXPECTED_SHARE.observe(expected);
+        for (long[] region : split) {
+            job.plan.add(region.clone());
+        }
+        job.regions.addAll(split);
+        jobs.add(first ? 0 : jobs.size(), job);
+        System.out.println(String.format("Job %d: search order %s, %d region(s), solution expected after %.1f%% of the range.",
+                jobId, order.name(), split.size(), expected * 100));
+    }
+
+    /**
+     * Records where a job was solved, for the search order to learn from, and how far into the
+     * order the solution was. Call before dropping the job.
+     */
+    void solved(long jobId, long solution) {
+        Job job = job(jobId);
+        if (job == null) {
+            return;
+        }
+        order.solved(job.start, job.end, solution);
+        long before = 0;
+        for (long[] region : job.plan) {
+            if (solution >= region[0] && solution <= region[1]) {
+                SEARCHED_SHARE.observe((double) (before + solution - region[0] + 1) / (job.end - job.start + 1));
+                return;
+            }
+            before += region[1] - region[0] + 1;
+        }
+    }
+
+    /**
+     * Closes a job (solved or abandoned). In-flight chunks stop carrying it; chunks left with
+     * no job are forgotten, as the worker drops them when the job is cancelled.
+     */
+    void dropJob(long jobId) {
+        jobs.removeIf(job -> job.id == jobId);
+        for (Deque<Chunk> queue : new ArrayList<>(inFlight.values())) {
+            for (Chunk chunk : new ArrayList<>(queue)) {
+                chunk.jobIds = Arrays.stream(chunk.jobIds).filter(id -> id != jobId).toArray();
+                chunk.taken.remove(jobId);
+                if (chunk.jobIds.length == 0) {
+                    remove(chunk);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops all jobs and in-flight chunks.
+     */
+    void clear() {
+        jobs.clear();
+        inFlight.clear();
+        live.clear();
+    }
+
+    boolean hasJob(long jobId) {
+        return job(jobId) != null;
+    }
+
+    /**
+     * @return true if nothing of the job is left to assign or in flight
+     */
+    boolean isExhausted(long jobId) {
+        Job job = job(jobId);
+        if (job == null || !job.regions.isEmpty()) {
+            return false;
+        }
+        for (Deque<Chunk> queue : inFlight.values()) {
+            for (Chunk chunk : queue) {
+                if (chunk.dropped) {
+                    continue;
+                }
+                for (long id : chunk.jobIds) {
+                    if (id == jobId) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The highest value such that everything from the job's start up to it has been
+     * checked, or start - 1
+     */
+    long checkpoint(long jobId) {
+        Job job = job(jobId);
+        if (job == null) {
+            throw new IllegalArgumentException("No open job " + jobId);
+        }
+        long unchecked = job.end + 1;
+        for (long[] region : job.regions) {
+            unchecked = Math.min(unchecked, region[0]);
+        }
+        for (Deque<Chunk> queue : inFlight.values()) {
+            for (Chunk chunk : queue) {
+                if (chunk.dropped) {
+                    continue;
+                }
+                for (long id : chunk.jobIds) {
+                    if (id == jobId) {
+                        unchecked = Math.min(unchecked, Math.max(job.start, chunk.checkpoint + 1));
+                    }
+                }
+            }
+        }
+        return unchecked - 1;
+    }
+
+    private Job job(long jobId) {
+        for (Job job : jobs) {
+            if (job.id == jobId) {
+                return job;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cuts the next chunk for a worker from the first job with work left and records it as in flight.
+     * @param workerCount Number of chunk slots (workers * pipeline depth) sharing the remaining range
+     * @return The chunk, or null if nothing is left
+     */
+    Chunk assign(WorkerCommInterface worker, int workerCount) {
+        Job job = null;
+        for (Job candidate : jobs) {
+            if (!candidate.regions.isEmpty()) {
+                job = candidate;
+                break;
+            }
+        }
+        if (job == null) {
+            return null;
+        }
+        long[] region = job.regions.peekFirst();
+
+        double rate = rates.getOrDefault(worker, DEFAULT_RATE);
+        long bySpeed = (long) (rate * TARGET_CHUNK_MILLIS / 1000.0);
+        long byShare = job.remaining / ((long) GUIDED_FACTOR * Math.max(1, workerCount));
+        long size = Math.max(MIN_CHUNK, Math.min(bySpeed, byShare));
+
+        long start = region[0];
+        // Take the whole region rather than leave a sliver behind
+        long end = (region[1] - start + 1 < size + MIN_CHUNK) ? region[1] : start + size - 1;
+        if (end == region[1]) {
+            job.regions.pollFirst();
+        } else {
+            region[0] = end + 1;
+        }
+        job.remaining -= end - start + 1;
+
+        // Other jobs still needing part of [start, end] are checked in the same sweep
+        long[] jobIds = new long[jobs.size()];
+        Map<Long, List<long[]>> taken = new HashMap<>();
+        int riders = 0;
+        jobIds[riders++] = job.id;
+        taken.put(job.id, new ArrayList<>(List.of(new long[]{start, end})));
+        for (Job other : jobs) {
+            List<long[]> removed = other == job ? List.of() : subtract(other, start, end);
+            if (!removed.isEmpty()) {
+                jobIds[riders++] = other.id;
+                taken.put(other.id, removed);
+            }
+        }
+
+        Chunk chunk = new Chunk(nextChunkId++, worker, start, end, Arrays.copyOf(jobIds, riders), taken);
+        track(chunk);
+        return chunk;
+    }
+
+    // Removes [start, end] from a job's remaining regions; returns the pieces that were still
+    // there, in traversal order
+    private static List<long[]> subtract(Job job, long start, long end) {
+        List<long[]> removed = new ArrayList<>();
+        List<long[]> kept = new ArrayList<>();
+        for (long[] r : job.regions) {
+            if (r[1] < start || r[0] > end) {
+                kept.add(r);
+                continue;
+            }
+            long[] piece = {Math.max(r[0], start), Math.min(r[1], end)};
+            removed.add(piece);
+            job.remaining -= piece[1] - piece[0] + 1;
+            if (r[0] < start) {
+                kept.add(new long[]{r[0], start - 1});
+            }
+            if (r[1] > end) {
+                kept.add(new long[]{end + 1, r[1]});
+            }
+        }
+        if (!removed.isEmpty()) {
+            job.regions.clear();
+            job.regions.addAll(kept);
+        }
+        return removed;
+    }
+
+    // The parts of each job's pieces that lie in [start, end]
+    private static Map<Long, List<long[]>> clip(Map<Long, List<long[]>> taken, long start, long end) {
+        Map<Long, List<long[]>> clipped = new HashMap<>();
+        for (Map.Entry<Long, List<long[]>> entry : taken.entrySet()) {
+            List<long[]> pieces = new ArrayList<>();
+            for (long[] piece : entry.getValue()) {
+                if (piece[1] >= start && piece[0] <= end) {
+                    pieces.add(new long[]{Math.max(piece[0], start), Math.min(piece[1], end)});
+                }
+            }
+            clipped.put(entry.getKey(), pieces);
+        }
+        return clipped;
+    }
+
+    private void track(Chunk chunk) {
+        Deque<Chunk> queue = inFlight.computeIfAbsent(chunk.owner, w -> new ArrayDeque<>());
+        if (queue.isEmpty()) {
+            chunk.startedAt = chunk.lastHeard = System.nanoTime();
+        }
+        queue.addLast(chunk);
+        live.put(chunk.id, chunk);
+    }
+
+    /**
+     * @return Number of chunks the worker is searching or has queued
+     */
+    int queued(WorkerCommInterface worker) {
+        Deque<Chunk> queue = inFlight.get(worker);
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * @return Number of chunks in flight across all workers
+     */
+    int queued() {
+        int total = 0;
+        for (Deque<Chunk> queue : inFlight.values()) {
+            total += queue.size();
+        }
+        return total;
+    }
+
+    /**
+     * @return Sum of the measured worker speeds, in hashes/s
+     */
+    double totalRate() {
+        double total = 0;
+        for (double rate : rates.values()) {
+            total += rate;
+        }
+        return total;
+    }
+
+    boolean isIdle(WorkerCommInterface worker) {
+        return queued(worker) == 0;
+    }
+
+    private Chunk find(WorkerCommInterface worker, long chunkId) {
+        Deque<Chunk> queue = inFlight.get(worker);
+        if (queue != null) {
+            for (Chunk chunk : queue) {
+                if (chunk.id == chunkId) {
+                    return chunk;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * For an idle worker once the range is exhausted: picks the in-flight chunk expected to
+     * finish last and hands out its unchecked remainder, if this worker would finish it sooner.
+     * @return The copy, or null if no chunk is worth re-running
+     */
+    Chunk speculate(WorkerCommInterface worker) {
+        long now = System.nanoTime();
+        double rate = rates.getOrDefault(worker, DEFAULT_RATE);
+        Chunk slowest = null;
+        double slowestLeft = 0;
+        for (Deque<Chunk> queue : inFlight.values()) {
+            // A queued chunk finishes after everything ahead of it on the same worker
+            double secondsLeft = 0;
+            for (Chunk chunk : queue) {
+                if (chunk.dropped) {
+                    continue; // Stops as soon as its worker gets the truncate
+                }
+                double ownerRate = rates.getOrDefault(chunk.owner, DEFAULT_RATE);
+                if (chunk.checkpoint >= chunk.start) {
+                    secondsLeft += (chunk.end - chunk.checkpoint) / ownerRate;
+                } else if (chunk.startedAt != 0) {
+                    secondsLeft += Math.max(0, (chunk.end - chunk.start + 1) / ownerRate - (now - chunk.startedAt) / 1e9);
+                } else {
+                    secondsLeft += (chunk.end - chunk.start + 1) / ownerRate;
+                }
+                if (chunk.owner == worker || chunk.twin != null || chunk.end - chunk.checkpoint < MIN_CHUNK) {
+                    continue;
+                }
+                double copySeconds = (chunk.end - chunk.checkpoint) / rate;
+                if (copySeconds < secondsLeft && secondsLeft > slowestLeft) {
+                    slowest = chunk;
+                    slowestLeft = secondsLeft;
+                }
+            }
+        }
+        if (slowest == null) {
+            return null;
+        }
+
+        Chunk copy = new Chunk(nextChunkId++, worker, slowest.checkpoint + 1, slowest.end, slowest.jobIds,
+                clip(slowest.taken, slowest.checkpoint + 1, slowest.end));
+        copy.twin = slowest;
+        slowest.twin = copy;
+        track(copy);
+        return copy;
+    }
+
+    /**
+     * For an idle worker once the range is exhausted: takes the upper part of the unchecked rest
+     * of the in-flight chunk with the most left, sized so that both workers finish about
+     * together. The part is recorded as this worker's; {@link Chunk#donor} is the shortened
+     * chunk, whose owner still has to be told to stop at its new end.
+     * @return The new chunk, or null if no chunk has enough left to be worth splitting
+     */
+    Chunk split(WorkerCommInterface worker) {
+        long now = System.nanoTime();
+        Chunk largest = null;
+        long largestLeft = 0;
+        for (Deque<Chunk> queue : inFlight.values()) {
+            for (Chunk chunk : queue) {
+                long left = chunk.end - unchecked(chunk, now) + 1;
+                // Duplicated chunks are left to speculation
+                if (chunk.owner == worker || chunk.twin != null || left < 2 * MIN_CHUNK) {
+                    continue;
+                }
+                if (left > largestLeft) {
+                    largest = chunk;
+                    largestLeft = left;
+                }
+            }
+        }
+        if (largest == null) {
+            return null;
+        }
+
+        double rate = rates.getOrDefault(worker, DEFAULT_RATE);
+        double ownerRate = rates.getOrDefault(largest.owner, DEFAULT_RATE);
+        long moved = Math.max(MIN_CHUNK, Math.min(largestLeft - MIN_CHUNK, (long) (largestLeft * rate / (rate + ownerRate))));
+        long from = largest.end - moved + 1;
+        Chunk chunk = new Chunk(nextChunkId++, worker, from, largest.end, largest.jobIds, clip(largest.taken, from, largest.end));
+        largest.end = from - 1;
+        largest.taken = clip(largest.taken, largest.start, largest.end);
+        chunk.donor = largest;
+        track(chunk);
+        return chunk;
+    }
+
+    // Expected first unchecked value of a chunk: its checkpoint, moved on at the owner's speed
+    // since the last report (the start if still queued)
+    private long unchecked(Chunk chunk, long now) {
+        if (chunk.startedAt == 0) {
+            return chunk.start;
+        }
+        double ownerRate = rates.getOrDefault(chunk.owner, DEFAULT_RATE);
+        return Math.min(chunk.end + 1, chunk.checkpoint + 1 + (long) ((now - chunk.lastHeard) / 1e9 * ownerRate));
+    }
+
+    /**
+     * Drops the part of a job above end from what is left to assign, and from what failed
+     * chunks give back. Chunks in flight go on.
+     */
+    void truncate(long jobId, long end) {
+        Job job = job(jobId);
+        if (job != null && end < job.last) {
+            subtract(job, end + 1, job.last);
+            job.last = end;
+        }
+    }
+
+    /**
+     * Records a progress report, which also renews the worker's lease on its chunk.
+     */
+    void progress(WorkerCommInterface worker, long chunkId, long checkpoint) {
+        Chunk chunk = live.get(chunkId);
+        if (chunk == null || !chunk.owner.equals(worker)) {
+            return;
+        }
+        // Only the owner reports on a chunk, one report at a time, so this needs no lock
+        chunk.checkpoint = Math.max(chunk.checkpoint, Math.min(checkpoint, chunk.end));
+        chunk.lastHeard = System.nanoTime();
+    }
+
+    /**
+     * @return Workers that have not reported on their running chunk for longer than the lease
+     */
+    List<WorkerCommInterface> expired(long leaseNanos) {
+        long now = System.nanoTime();
+        List<WorkerCommInterface> lost = new ArrayList<>();
+        for (Deque<Chunk> queue : inFlight.values()) {
+            Chunk running = queue.peekFirst();
+            if (running != null && now - running.lastHeard > leaseNanos) {
+                lost.add(running.owner);
+            }
+        }
+        return lost;
+    }
+
+    /**
+     * Sets a worker's speed estimate from its own measurement, before or between completions.
+     */
+    void seedRate(WorkerCommInterface worker, double hashesPerSecond) {
+        if (hashesPerSecond > 0) {
+            rates.put(worker, hashesPerSecond);
+        }
+    }
+
+    /**
+     * Records that a worker finished a chunk and updates its speed estimate.
+     * @return The finished chunk, or null if the report is stale (chunk no longer in flight)
+     */
+    Chunk completed(WorkerCommInterface worker, long chunkId) {
+        Chunk chunk = find(worker, chunkId);
+        if (chunk == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        remove(chunk);
+        if (chunk.dropped) {
+            return chunk; // Cut short: says nothing about the worker's speed
+        }
+
+        long elapsed = now - chunk.startedAt;
+        if (chunk.startedAt != 0 && elapsed >= MIN_SAMPLE_NANOS) {
+            double sample = (chunk.end - chunk.start + 1) * 1e9 / elapsed;
+            Double previous = rates.get(worker);
+            double rate = previous == null ? sample : 0.5 * previous + 0.5 * sample;
+            rates.put(worker, rate);
+        }
+        if (chunk.startedAt != 0) {
+            CHUNK_SECONDS.observeNanos(elapsed);
+        }
+        return chunk;
+    }
+
+    /**
+     * Marks the other copy of a finished chunk {@link Chunk#dropped dropped}: it no longer
+     * holds its jobs open, and is removed once its worker reports it.
+     * @return The redundant copy, whose owner must be told to stop at its (new) end, or null
+     */
+    Chunk cancelTwin(Chunk finished) {
+        Chunk twin = finished.twin;
+        finished.twin = null;
+        if (twin == null || !isLive(twin)) {
+            return null;
+        }
+        twin.twin = null;
+        twin.dropped = true;
+        twin.taken = new HashMap<>();
+        twin.end = twin.start - 1;
+        return twin;
+    }
+
+    // Removes a chunk from its worker's queue and starts the clock on the next one
+    private boolean remove(Chunk chunk) {
+        Deque<Chunk> queue = inFlight.get(chunk.owner);
+        if (queue == null || !queue.remove(chunk)) {
+            return false;
+        }
+        live.remove(chunk.id);
+        Chunk next = queue.peekFirst();
+        if (next == null) {
+            inFlight.remove(chunk.owner);
+        } else if (next.startedAt == 0) {
+            next.startedAt = next.lastHeard = System.nanoTime();
+        }
+        return true;
+    }
+
+    private boolean isLive(Chunk chunk) {
+        Deque<Chunk> queue = inFlight.get(chunk.owner);
+        return queue != null && queue.contains(chunk);
+    }
+
+    /**
+     * Puts the unchecked part of a failed worker's chunks back at the front of their jobs,
+     * except where a copy is still running elsewhere. Each job only gets back the pieces the
+     * chunk took from it: the rest of the chunk is searched, or in flight, elsewhere for it.
+     * @return The re-queued {start, end} ranges
+     */
+    List<long[]> failed(WorkerCommInterface worker) {
+        rates.remove(worker);
+        List<long[]> requeued = new ArrayList<>();
+        Deque<Chunk> queue = inFlight.remove(worker);
+        if (queue == null) {
+            return requeued;
+        }
+        // Walk backwards so the chunks end up at the front in their original order
+        for (Iterator<Chunk> it = queue.descendingIterator(); it.hasNext(); ) {
+            Chunk chunk = it.next();
+            live.remove(chunk.id);
+            Chunk twin = chunk.twin;
+            if (twin != null && isLive(twin)) {
+                twin.twin = null;
+                continue;
+            }
+            if (chunk.checkpoint >= chunk.end) {
+                continue;
+            }
+            for (long jobId : chunk.jobIds) {
+                Job job = job(jobId);
+                List<long[]> pieces = chunk.taken.get(jobId);
+                if (job == null || pieces == null) {
+                    continue;
+                }
+                // Backwards again, so the pieces stay in traversal order
+                for (int i = pieces.size() - 1; i >= 0; i--) {
+                    long start = Math.max(pieces.get(i)[0], chunk.checkpoint + 1);
+                    long end = Math.min(pieces.get(i)[1], Math.min(chunk.end, job.last));
+                    if (start <= end) {
+                        job.regions.addFirst(new long[]{start, end});
+                        job.remaining += end - start + 1;
+                    }
+                }
+            }
+            requeued.add(0, new long[]{chunk.checkpoint + 1, chunk.end});
+        }
+        return requeued;
+    }
+}
@@ -1,43 +1,117 @@
 package client;
 
+import java.nio.ByteBuffer;
 import java.rmi.Naming;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Queue;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
 
 import server.ServerCommInterface;
+import common.Keyspace;
+import common.Keyspaces;
 import common.MasterRepInterface;
+import common.Metrics;
+import common.SearchTask;
 import common.WorkerCommInterface;
 import client.ClientCommInterface;
 
 public class CrackerClient extends UnicastRemoteObject implements ClientCommInterface {
 
-    private String teamName = "Wi-Fighters";
+    // Name registered with the contest server (-Dclient.team); several clients can share a
+    // MockServer under different names
+    private final String teamName = System.getProperty("client.team", "Wi-Fighters");
     private ServerCommInterface server;
-    private List<WorkerCommInterface> workers = new ArrayList<>();
-    private boolean solutionFound = false;
-    
+    // Registration and removal need no lock; scheduling decisions still take the client's
+    private final Set<WorkerCommInterface> workers = ConcurrentHashMap.newKeySet();
+
+    // Open problems by job id; a job is closed once solved, exhausted or preempted
+    private final Map<Long, byte[]> jobHashes = new ConcurrentHashMap<>();
+    // System.nanoTime() at which each open job was published
+    private final Map<Long, Long> publishedAt = new ConcurrentHashMap<>();
+    // Solutions found so far, by target digest: a repeated problem is answered on the spot.
+    // Least recently used first, and the oldest are forgotten past REMEMBERED_SOLUTIONS, so a
+    // long-running master does not grow; guarded by this.
+    private final Map<ByteBuffer, String> solutions = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, String> eldest) {
+            return size() > REMEMBERED_SOLUTIONS;
+        }
+    };
+    private long nextJobId = 1;
+
     // Chunking state
-    private Queue<long[]> pendingTasks = new LinkedList<>();
-    private byte[] currentProblemHash;
+    private final ChunkScheduler scheduler = new ChunkScheduler();
 
     // Config
-    private static final int WORKER_PORT = 1099;
+    // Port of the registry the workers look the master up in (-Dclient.port)
+    private static final int WORKER_PORT = Integer.getInteger("client.port", 1099);
     private static String serverHost = "localhost";
     private static final String SERVER_SERVICE = "server";
-    // Number of chunks to split the work into. 
-    // Higher number = better load balancing but more RMI overhead.
-    private static final int TOTAL_CHUNKS = 5; 
+    // A worker that does not report progress for LEASE_MILLIS loses its chunk (-Dclient.leaseMillis)
+    private static final long LEASE_MILLIS = Long.getLong("client.leaseMillis", 5000);
+    private final ScheduledExecutorService leaseMonitor = Executors.newSingleThreadScheduledExecutor();
+    // Chunks each worker holds: the running one plus the ones queued behind it (-Dclient.pipeline)
+    private static final int PIPELINE_DEPTH = Math.max(1, Integer.getInteger("client.pipeline", 2));
+    // Calls to workers go through a bounded pool (-Dclient.dispatchThreads) and time out after
+    // RMI_TIMEOUT_MILLIS (-Dclient.rmiTimeoutMillis), so dead workers cannot pile up threads
+    private static final int DISPATCH_THREADS = Integer.getInteger("client.dispatchThreads", 4 * Runtime.getRuntime().availableProcessors());
+    private static final long RMI_TIMEOUT_MILLIS = Long.getLong("client.rmiTimeoutMillis", 10_000);
+    private final Dispatcher dispatcher = new Dispatcher(DISPATCH_THREADS);
+    // How long a new problem waits for the workers' digest caches before it is searched
+    // (-Dclient.lookupMillis, 0: no lookup); workers answering later are searched as usual
+    private static final long LOOKUP_MILLIS = Long.getLong("client.lookupMillis", 250);
+    // Solutions remembered for repeated problems (-Dclient.rememberedSolutions); older ones are
+    // still found in the workers' caches, by the lookup
+    private static final int REMEMBERED_SOLUTIONS = Integer.getInteger("client.rememberedSolutions", 10_000);
+    // Candidates to search (-Dclient.keyspace, see common.Keyspaces). The plain decimal one is
+    // searched up to the problem size the server gives; any other is searched whole.
+    private static final String KEYSPACE = System.getProperty("client.keyspace", Keyspaces.DECIMAL.spec());
+    private volatile Keyspace keyspace = Keyspaces.parse(KEYSPACE);
+    // Also accept workers over the binary transport on this port (-Dclient.binaryPort, 0: RMI only)
+    private static final int BINARY_PORT = Integer.getInteger("client.binaryPort", 0);
+
+    /**
+     * What a newly published problem does to the open ones (-Dclient.policy).
+     * PREEMPT closes them; NEWEST searches the new one first; OLDEST queues it behind them.
+     * Open jobs share every chunk that overlaps their ranges either way.
+     */
+    enum Policy { PREEMPT, NEWEST, OLDEST }
+    private static final Policy POLICY = Policy.valueOf(System.getProperty("client.policy", "newest").toUpperCase());
+
+    // Metrics (see common.Metrics)
+    private static final Metrics.Histogram SOLUTION_SECONDS =
+            Metrics.histogram("client_time_to_solution_seconds", "Time from publishProblem to submitSolution");
+    private static final Metrics.Histogram SOLVE_RMI = rmiHistogram("solve");
+    private static final Metrics.Histogram ENQUEUE_RMI = rmiHistogram("enqueue");
+    private static final Metrics.Histogram CANCEL_RMI = rmiHistogram("cancel");
+    private static final Metrics.Histogram TRUNCATE_RMI = rmiHistogram("truncate");
+    private static final Metrics.Histogram STOP_RMI = rmiHistogram("stop");
+    private static final Metrics.Counter CHUNKS_ASSIGNED = Metrics.counter("client_chunks_assigned_total", "Chunks handed to workers");
+    private static final Metrics.Histogram LOOKUP_SECONDS =
+            Metrics.histogram("client_lookup_seconds", "Time to look a new problem up in the workers' digest caches");
+    private static final Metrics.Counter CACHE_ANSWERS = Metrics.counter("client_cache_answers_total", "Problems answered without a search");
 
     protected CrackerClient() throws RemoteException {
         super();
     }
 
+    static {
+        // Read by the RMI transport when it first opens a connection; explicit settings win
+        System.getProperties().putIfAbsent("sun.rmi.transport.connectionTimeout", String.valueOf(RMI_TIMEOUT_MILLIS));
+        System.getProperties().putIfAbsent("sun.rmi.transport.tcp.responseTimeout", String.valueOf(RMI_TIMEOUT_MILLIS));
+    }
+
     public static void main(String[] args) {
         if (args.length > 0) {
             serverHost = args[0];
@@ -59,17 +133,7 @@ public class CrackerClient extends UnicastRemoteObject implements ClientCommInte
     }
 
     public void start() throws Exception {
-        try {
-            LocateRegistry.createRegistry(WORKER_PORT);
-            System.out.println("Internal RMI Registry started on port " + WORKER_PORT);
-        } catch (Exception e) {
-            System.out.println("RMI Registry already running or failed: " + e.getMessage());
-        }
-
-        // Create and bind the separate handler for Workers
-        WorkerHandler workerHandler = new WorkerHandler();
-        Naming.rebind("rmi://localhost:" + WORKER_PORT + "/Master", workerHandler);
-        System.out.println("MasterRepInterface bound (WorkerHandler).");
+        startMaster();
 
         String serverUrl = "rmi://" + serverHost + "/" + SERVER_SERVICE;
         System.out.println("Connecting to contest server at " + serverUrl);
@@ -94,6 +158,59 @@ public class CrackerClient extends UnicastRemoteObject implements ClientCommInte
         System.out.println("Registered with server as " + teamName);
     }
 
+    /**
+     * Opens the side facing the workers: registry, binary port, lease monitor and metrics.
+     */
+    protected void startMaster() throws Exception {
+        try {
+            LocateRegistry.createRegistry(WORKER_PORT);
+            System.out.println("Internal RMI Registry started on port " + WORKER_PORT);
+        } catch (Exception e) {
+            System.out.println("RMI Registry already running or failed: " + e.getMessage());
+        }
+
+        // Create and bind the separate handler for Workers
+        WorkerHandler workerHandler = new WorkerHandler();
+        Naming.rebind("rmi://localhost:" + WORKER_PORT + "/Master", workerHandler);
+        System.out.println("MasterRepInterface bound (WorkerHandler).");
+        if (BINARY_PORT > 0) {
+            new BinaryMasterServer(workerHandler, BINARY_PORT, RMI_TIMEOUT_MILLIS);
+            System.out.println("Binary transport listening on port " + BINARY_PORT);
+        }
+        long checkEvery = Math.max(1, LEASE_MILLIS / 5);
+        leaseMonitor.scheduleAtFixedRate(this::checkLeases, checkEvery, checkEvery, TimeUnit.MILLISECONDS);
+
+        Metrics.gauge("client_workers", "Registered workers", workers::size);
+        Metrics.gauge("client_open_jobs", "Problems not yet solved or exhausted", jobHashes::size);
+        Metrics.gauge("client_chunks_in_flight", "Chunks running or queued on workers", () -> snapshot(scheduler::queued));
+        Metrics.gauge("client_worker_rate", "Sum of the measured worker speeds, in hashes/s", () -> snapshot(scheduler::totalRate));
+        Metrics.gauge("client_dispatch_backlog", "Worker lanes waiting for a dispatch thread", dispatcher::backlog);
+        Metrics.expose("client", this::summary);
+
+        // Tell the workers to stop when the master goes down, without hanging on dead ones
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            int answered = stopAllWorkers().join();
+            System.out.println("Stopped " + answered + " of " + workers.size() + " worker(s).");
+        }));
+    }
+
+    private static Metrics.Histogram rmiHistogram(String call) {
+        return Metrics.histogram("client_rmi_seconds{call=\"" + call + "\"}", "Round trip of calls to workers");
+    }
+
+    // Reads scheduler state under the client lock
+    private synchronized double snapshot(DoubleSupplier value) {
+        return value.getAsDouble();
+    }
+
+    // One line in place of per-chunk logging
+    private synchronized String summary() {
+        Metrics.Histogram chunks = ChunkScheduler.CHUNK_SECONDS;
+        return String.format("workers %d, %.2fM hashes/s | jobs open %d | chunks assigned %d, done %d (p50 %.2fs), in flight %d | solve rtt p99 %.4fs | solutions %d (p50 %.2fs)",
+                workers.size(), scheduler.totalRate() / 1e6, jobHashes.size(), CHUNKS_ASSIGNED.get(), chunks.count(),
+                chunks.quantile(0.5), scheduler.queued(), SOLVE_RMI.quantile(0.99), SOLUTION_SECONDS.count(), SOLUTION_SECONDS.quantile(0.5));
+    }
+
     // --- Inner class to handle Workers ---
     private class WorkerHandler extends UnicastRemoteObject implements MasterRepInterface {
         protected WorkerHandler() throws RemoteException {
@@ -101,33 +218,79 @@ public class CrackerClient extends UnicastRemoteObject implements ClientCommInte
         }
 
         @Override
-        public void registerWorker(WorkerCommInterface worker) throws RemoteException {
-            synchronized (CrackerClient.this) {
-                workers.add(worker);
-                System.out.println("Worker registered. Total workers: " + workers.size());
+        public void registerWorker(WorkerCommInterface worker, String backend, double hashesPerSecond) throws RemoteException {
+            workers.add(worker);
+            System.out.println("Worker registered. Total workers: " + workers.size());
+            if (hashesPerSecond > 0) {
+                CrackerClient.this.reportCapacity(worker, backend, hashesPerSecond);
             }
+            // A worker joining while a problem runs gets part of it right away, sized by its capacity
+            assignNextTask(worker);
         }
 
         @Override
-        public void submitInternalSolution(String solution) throws RemoteException {
-            CrackerClient.this.submitInternalSolution(solution);
+        public void submitInternalSolution(long jobId, String solution) throws RemoteException {
+            CrackerClient.this.submitInternalSolution(jobId, solution);
         }
 
         @Override
-        public void taskCompleted(WorkerCommInterface worker) throws RemoteException {
-            CrackerClient.this.assignNextTask(worker);
+        public void taskCompleted(WorkerCommInterface worker, long taskId) throws RemoteException {
+            CrackerClient.this.taskCompleted(worker, taskId);
+        }
+
+        @Override
+        public void reportProgress(WorkerCommInterface worker, long taskId, long checkpoint) throws RemoteException {
+            // The most frequent call: handled without the client lock
+            scheduler.progress(worker, taskId, checkpoint);
+        }
+
+        @Override
+        public void reportCapacity(WorkerCommInterface worker, String backend, double hashesPerSecond) throws RemoteException {
+            CrackerClient.this.reportCapacity(worker, backend, hashesPerSecond);
         }
     }
 
     // --- Logic ---
 
-    public synchronized void submitInternalSolution(String solution) {
-        if (solutionFound) return;
-        solutionFound = true;
+    public void submitInternalSolution(long jobId, String solution) {
+        synchronized (this) {
+            if (!jobHashes.containsKey(jobId)) return; // Already solved, or no longer wanted
 
-        System.out.println("Solution found by a worker: " + solution);
-        stopAllWorkers();
-        pendingTasks.clear(); // Clear separate tasks
+            System.out.println("Solution found by a worker for job " + jobId + ": " + solution);
+            SOLUTION_SECONDS.since(publishedAt.get(jobId));
+            solutions.put(ByteBuffer.wrap(jobHashes.get(jobId)), solution);
+            long index = keyspace.index(solution);
+            if (index >= 0) {
+                scheduler.solved(jobId, index);
+            } else {
+                System.err.println("Solution " + solution + " is not in keyspace " + keyspace.spec() + "; not recorded.");
+            }
+            closeJob(jobId);
+            // Chunks that only carried this job are gone: refill the pipelines
+            for (WorkerCommInterface worker : new ArrayList<>(workers)) {
+                assignNextTask(worker);
+            }
+        }
+        // Outside the lock: workers keep reporting while the server answers
+        solved(jobId, solution);
+    }
+
+    /**
+     * Takes a worker's measured speed as its first speed estimate; completed chunks refine it.
+     */
+    protected synchronized void reportCapacity(WorkerCommInterface worker, String backend, double hashesPerSecond) {
+        System.out.println(String.format("Worker capacity: %.2fM hashes/s (%s backend)", hashesPerSecond / 1e6, backend));
+        scheduler.seedRate(worker, hashesPerSecond);
+    }
+
+    /**
+     * Passes a solution on; called without the client lock. Submits it to the contest server.
+     */
+    protected void solved(long jobId, String solution) {
+        submitToServer(solution);
+    }
+
+    private void submitToServer(String solution) {
         try {
             server.submitSolution(teamName, solution);
         } catch (Exception e) {
@@ -135,86 +298,313 @@ public class CrackerClient extends UnicastRemoteObject implements ClientCommInte
         }
     }
 
-    private synchronized void assignNextTask(WorkerCommInterface worker) {
-        if (solutionFound) return;
-        
-        long[] range = pendingTasks.poll();
-        if (range == null) {
-            // No more work
-            System.out.println("No more tasks pending. Worker idle.");
-            return;
+    /**
+     * Looks targets up without searching: among the solutions found so far, then in the digest
+     * caches of every worker. Each worker caches the ranges it searched, and those are disjoint,
+     * so the caches together act as one cache partitioned across the cluster, asked in a single
+     * parallel round trip. Call without the client lock.
+     * @param timeoutMillis Workers answering later are not waited for
+     * @return For each target, a candidate of the keyspace that hashes to it, or null
+     */
+    protected String[] lookupCluster(byte[][] hashes, long timeoutMillis) {
+        String[] found = new String[hashes.length];
+        boolean missing = false;
+        for (int i = 0; i < hashes.length; i++) {
+            found[i] = remembered(hashes[i]);
+            missing |= found[i] == null;
         }
-
-        long start = range[0];
-        long end = range[1];
-        
-        System.out.println("Assigning range " + start + "-" + end + " to worker."); // Can include worker ID if available
-        
-        new Thread(() -> {
-            try {
-                worker.solve(currentProblemHash, start, end);
-            } catch (RemoteException e) {
-                System.err.println("Worker failed during solve. Removing.");
-                synchronized (CrackerClient.this) {
-                    workers.remove(worker);
-                    // Re-queue the failed task!
-                    pendingTasks.add(range); 
+        if (!missing || timeoutMillis <= 0 || workers.isEmpty()) {
+            return found;
+        }
+        String spec = keyspace.spec();
+        long started = System.nanoTime();
+        List<String[]> answers = dispatcher.gather(workers, w -> w.lookup(spec, hashes),
+                e -> System.err.println("Failed to look digests up on a worker (likely disconnected)."), timeoutMillis).join();
+        LOOKUP_SECONDS.since(started);
+        for (String[] answer : answers) {
+            for (int i = 0; i < found.length; i++) {
+                if (found[i] == null) {
+                    found[i] = answer[i];
                 }
             }
-        }).start();
+        }
+        return found;
+    }
+
+    // The solution remembered for a digest, or null
+    private synchronized String remembered(byte[] hash) {
+        return solutions.get(ByteBuffer.wrap(hash));
+    }
+
+    /**
+     * Searches another keyspace from now on, e.g. the one of the tasks a sub-master relays.
+     */
+    protected synchronized void useKeyspace(String spec) {
+        if (!keyspace.spec().equals(spec)) {
+            keyspace = Keyspaces.parse(spec);
+        }
+    }
+
+    /**
+     * Called under the client lock once a job's whole range was searched without a match.
+     */
+    protected void exhausted(long jobId) {
+    }
+
+    /**
+     * Opens a job over [start, end] and hands its first chunks out.
+     * @param first true to search it ahead of the open jobs, false to queue it behind them
+     * @return The job id
+     */
+    protected synchronized long openJob(byte[] hash, long start, long end, boolean first) {
+        // Chunks are cut on demand, sized to each worker's measured speed
+        long jobId = nextJobId++;
+        jobHashes.put(jobId, hash);
+        publishedAt.put(jobId, System.nanoTime());
+        scheduler.addJob(jobId, start, end, first);
+
+        // Top up every worker; busy ones pick the new job up as their pipelines drain
+        for (WorkerCommInterface worker : workers) {
+            assignNextTask(worker);
+        }
+        return jobId;
+    }
+
+    protected boolean isOpen(long jobId) {
+        return jobHashes.containsKey(jobId);
+    }
+
+    /**
+     * @see ChunkScheduler#checkpoint
+     */
+    protected synchronized long checkpoint(long jobId) {
+        return scheduler.checkpoint(jobId);
+    }
+
+    protected int workerCount() {
+        return workers.size();
+    }
+
+    // Speed of all workers together, as estimated by the scheduler
+    protected synchronized double totalRate() {
+        return scheduler.totalRate();
+    }
+
+    // Drops a job's remaining chunks and tells every worker to stop checking its target
+    protected synchronized void closeJob(long jobId) {
+        jobHashes.remove(jobId);
+        publishedAt.remove(jobId);
+        scheduler.dropJob(jobId);
+        dispatcher.broadcast(workers, worker -> {
+            long sent = System.nanoTime();
+            worker.cancel(jobId);
+            CANCEL_RMI.since(sent);
+        }, e -> System.err.println("Failed to cancel job on a worker (likely disconnected)."), RMI_TIMEOUT_MILLIS);
+    }
+
+    private synchronized void taskCompleted(WorkerCommInterface worker, long taskId) {
+        ChunkScheduler.Chunk chunk = scheduler.completed(worker, taskId);
+        if (chunk == null) {
+            return; // Stale report for a chunk that was reassigned or belongs to a closed job
+        }
+        if (chunk.dropped) {
+            assignNextTask(worker); // The worker stopped a redundant copy and moved on
+            return;
+        }
+        // The other copy of this chunk is now redundant; drop it before checking whether its
+        // jobs are exhausted
+        ChunkScheduler.Chunk duplicate = scheduler.cancelTwin(chunk);
+        for (long jobId : chunk.jobIds) {
+            closeIfExhausted(jobId);
+        }
+        assignNextTask(worker);
+
+        // Stop the duplicate at once, whether it is running or still queued: its worker reports
+        // it when it moves on
+        if (duplicate != null) {
+            System.out.println("Range " + chunk.start + "-" + chunk.end + " finished first; dropping its duplicate.");
+            truncate(duplicate);
+        }
     }
 
-    private void stopAllWorkers() {
-        System.out.println("Stopping all workers...");
+    // Closes a job once nothing of it is left to assign or in flight
+    private void closeIfExhausted(long jobId) {
+        if (scheduler.isExhausted(jobId)) {
+            System.out.println("Job " + jobId + " exhausted without a solution.");
+            jobHashes.remove(jobId);
+            publishedAt.remove(jobId);
+            scheduler.dropJob(jobId);
+            exhausted(jobId);
+        }
+    }
+
+    /**
+     * Stops assigning the part of a job above end; chunks already handed out go on.
+     */
+    protected synchronized void truncateJob(long jobId, long end) {
+        scheduler.truncate(jobId, end);
+        closeIfExhausted(jobId);
+    }
+
+    // Drops workers whose lease expired and re-queues their chunks from the last checkpoint
+    private synchronized void checkLeases() {
+        List<WorkerCommInterface> lost = scheduler.expired(TimeUnit.MILLISECONDS.toNanos(LEASE_MILLIS));
+        if (lost.isEmpty()) {
+            return;
+        }
+        for (WorkerCommInterface worker : lost) {
+            workers.remove(worker);
+            dispatcher.forget(worker);
+            System.err.println("Worker lease expired. Removing.");
+            for (long[] rest : scheduler.failed(worker)) {
+                System.err.println("Re-queued " + rest[0] + "-" + rest[1] + " from its last checkpoint.");
+            }
+        }
+        // Spread the re-queued work over the survivors right away
         for (WorkerCommInterface worker : new ArrayList<>(workers)) {
-            new Thread(() -> {
-                try {
-                    worker.stop();
-                } catch (RemoteException e) {
-                    System.err.println("Failed to stop a worker (likely disconnected).");
-                }
-            }).start();
+            assignNextTask(worker);
         }
     }
 
-    @Override
-    public void publishProblem(byte[] hash, int problemsize) throws Exception {
-        System.out.println("Received problem. Max: " + problemsize);
-        synchronized (this) {
-            solutionFound = false;
-            currentProblemHash = hash;
-            pendingTasks.clear();
+    /**
+     * Tops up a worker's pipeline to PIPELINE_DEPTH chunks. An idle worker gets its first
+     * chunk with solve; the others are queued behind it with enqueue.
+     * @return false if there was nothing left to assign
+     */
+    private synchronized boolean assignNextTask(WorkerCommInterface worker) {
+        if (jobHashes.isEmpty()) return false;
 
-            if (workers.isEmpty()) {
-                System.err.println("No workers available!");
-                return;
+        boolean idle = scheduler.isIdle(worker);
+        List<SearchTask> batch = new ArrayList<>();
+        while (scheduler.queued(worker) < PIPELINE_DEPTH) {
+            ChunkScheduler.Chunk chunk = scheduler.assign(worker, workers.size() * PIPELINE_DEPTH);
+            if (chunk == null && scheduler.isIdle(worker)) {
+                // Range exhausted: take over part of the largest chunk in flight, else help
+                // with the straggler expected to finish last
+                chunk = scheduler.split(worker);
+                if (chunk != null) {
+                    System.out.println("Split " + chunk.start + "-" + chunk.end + " off a chunk in flight for an idle worker.");
+                    truncate(chunk.donor);
+                } else {
+                    chunk = scheduler.speculate(worker);
+                    if (chunk != null) {
+                        System.out.println("Speculatively re-running " + chunk.start + "-" + chunk.end + " on an idle worker.");
+                    }
+                }
             }
+            if (chunk == null) {
+                break;
+            }
+            batch.add(toTask(chunk));
+        }
+        if (batch.isEmpty()) {
+            if (idle) {
+                // No more work
+                System.out.println("No more tasks pending. Worker idle.");
+            }
+            return false;
+        }
 
-            // Chunk generation
-            long totalRange = problemsize;
-            // Use Math.max to prevent chunk size 0
-            long chunkSize = Math.max(1, totalRange / TOTAL_CHUNKS);
-            
-            List<long[]> chunks = new ArrayList<>();
-            for (int i = 0; i < TOTAL_CHUNKS; i++) {
-                long start = i * chunkSize;
-                // If last chunk, go to end (handle remainder)
-                long end = (i == TOTAL_CHUNKS - 1) ? totalRange : (start + chunkSize - 1);
-                
-                if (start <= end) {
-                    chunks.add(new long[]{start, end});
+        CHUNKS_ASSIGNED.add(batch.size());
+        dispatcher.send(worker, w -> {
+            for (int i = 0; i < batch.size(); i++) {
+                SearchTask task = batch.get(i);
+                long sent = System.nanoTime();
+                if (i == 0 && idle) {
+                    w.solve(task);
+                    SOLVE_RMI.since(sent);
+                } else {
+                    w.enqueue(task);
+                    ENQUEUE_RMI.since(sent);
                 }
             }
+        }, e -> dropWorker(worker));
+        return true;
+    }
 
-            // Randomize order
-            Collections.shuffle(chunks);
-            pendingTasks.addAll(chunks);
-            System.out.println("Generated " + chunks.size() + " random chunks. Starting distribution...");
+    // Tells the owner of a chunk to stop at its new end: a split chunk's donor, or a dropped copy
+    private void truncate(ChunkScheduler.Chunk chunk) {
+        long taskId = chunk.id;
+        long end = chunk.end;
+        dispatcher.send(chunk.owner, w -> {
+            long sent = System.nanoTime();
+            w.truncate(taskId, end);
+            TRUNCATE_RMI.since(sent);
+        }, e -> dropWorker(chunk.owner));
+    }
 
-            // Initial assignment: give 1 chunk to each worker
-            for (WorkerCommInterface worker : workers) {
-                assignNextTask(worker);
+    // A call to the worker failed: forget it and re-queue its tasks
+    private synchronized void dropWorker(WorkerCommInterface worker) {
+        if (!workers.remove(worker)) {
+            return; // Already dropped
+        }
+        System.err.println("Worker failed during solve. Removing.");
+        dispatcher.forget(worker);
+        scheduler.failed(worker);
+        // Spread its share over the survivors
+        for (WorkerCommInterface other : new ArrayList<>(workers)) {
+            assignNextTask(other);
+        }
+    }
+
+    private SearchTask toTask(ChunkScheduler.Chunk chunk) {
+        byte[][] hashes = new byte[chunk.jobIds.length][];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = jobHashes.get(chunk.jobIds[i]);
+        }
+        return new SearchTask(chunk.id, keyspace.spec(), chunk.start, chunk.end, chunk.jobIds, hashes);
+    }
+
+    /**
+     * Stops every worker in parallel.
+     * @return Completes with the number of workers that answered, within RMI_TIMEOUT_MILLIS
+     */
+    private CompletableFuture<Integer> stopAllWorkers() {
+        return dispatcher.broadcast(workers, CrackerClient::stop,
+                e -> System.err.println("Failed to stop a worker (likely disconnected)."), RMI_TIMEOUT_MILLIS);
+    }
+
+    private static void stop(WorkerCommInterface worker) throws RemoteException {
+        long sent = System.nanoTime();
+        worker.stop();
+        STOP_RMI.since(sent);
+    }
+
+    @Override
+    public void publishProblem(byte[] hash, int problemsize) throws Exception {
+        System.out.println("Received problem. Max: " + problemsize
+                + (keyspace == Keyspaces.DECIMAL ? "" : " (searching " + keyspace.spec() + ", " + keyspace.size() + " candidates)"));
+        long published = System.nanoTime();
+        // A problem solved before is answered from memory. Otherwise the workers' caches are
+        // asked, outside the lock: workers keep reporting meanwhile.
+        String remembered = remembered(hash);
+        String known = remembered != null ? remembered : lookupCluster(new byte[][]{hash}, LOOKUP_MILLIS)[0];
+        synchronized (this) {
+            if (POLICY == Policy.PREEMPT) {
+                for (long open : new ArrayList<>(jobHashes.keySet())) {
+                    System.out.println("Preempting job " + open + ".");
+                    closeJob(open);
+                }
+            }
+
+            if (known == null) {
+                if (workers.isEmpty()) {
+                    System.err.println("No workers available!");
+                    return;
+                }
+                long end = keyspace == Keyspaces.DECIMAL ? problemsize : keyspace.size() - 1;
+                long jobId = openJob(hash, 0, end, POLICY != Policy.OLDEST);
+                System.out.println("Starting distribution of job " + jobId + " (" + jobHashes.size() + " open, policy " + POLICY.name().toLowerCase() + ")...");
+                return;
             }
+            System.out.println(remembered != null
+                    ? "Problem solved before: " + known + "; answered from memory."
+                    : "Problem answered from the workers' digest caches: " + known + "; nothing to search.");
+            SOLUTION_SECONDS.since(published);
+            CACHE_ANSWERS.inc();
+            solutions.put(ByteBuffer.wrap(hash), known);
         }
+        // Outside the lock, as for solutions found by workers
+        submitToServer(known);
     }
 }
@@ -0,0 +1,155 @@
+package client;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import common.WorkerCommInterface;
+
+/**
+ * Sends calls to workers from a bounded pool instead of a thread per call. Each worker has a
+ * lane: its calls run one at a time in the order they were sent (a solve is never overtaken by
+ * the enqueue behind it), while different workers are served in parallel. A lane occupies at
+ * most one pool thread, so a dead worker holds up only its own calls, and only until the RMI
+ * timeout fails them.
+ */
+class Dispatcher {
+
+    /**
+     * One remote call to a worker.
+     */
+    interface Call {
+        void run(WorkerCommInterface worker) throws RemoteException;
+    }
+
+    /**
+     * One remote call to a worker that returns a result.
+     */
+    interface Query<T> {
+        T run(WorkerCommInterface worker) throws RemoteException;
+    }
+
+    private final ThreadPoolExecutor pool;
+    private final Map<WorkerCommInterface, Lane> lanes = new ConcurrentHashMap<>();
+
+    Dispatcher(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "dispatch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues a call on the worker's lane.
+     * @param onFailure Runs on the dispatch thread if the call throws
+     * @return Completes with true once the call returned, false if it failed
+     */
+    CompletableFuture<Boolean> send(WorkerCommInterface worker, Call call, Consumer<RemoteException> onFailure) {
+        CompletableFuture<Boolean> done = new CompletableFuture<>();
+        lanes.computeIfAbsent(worker, w -> new Lane()).submit(() -> {
+            try {
+                call.run(worker);
+                done.complete(true);
+            } catch (RemoteException e) {
+                onFailure.accept(e);
+                done.complete(false);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                done.complete(false);
+            }
+        });
+        return done;
+    }
+
+    /**
+     * Sends the same call to every worker in parallel.
+     * @return Completes with the number of workers that answered, at the latest after
+     * timeoutMillis; workers still busy then count as not answering
+     */
+    CompletableFuture<Integer> broadcast(Collection<WorkerCommInterface> workers, Call call,
+                                         Consumer<RemoteException> onFailure, long timeoutMillis) {
+        List<CompletableFuture<Boolean>> sent = new ArrayList<>();
+        for (WorkerCommInterface worker : workers) {
+            sent.add(send(worker, call, onFailure).completeOnTimeout(false, timeoutMillis, TimeUnit.MILLISECONDS));
+        }
+        return CompletableFuture.allOf(sent.toArray(new CompletableFuture<?>[0])).thenApply(all -> {
+            int answered = 0;
+            for (CompletableFuture<Boolean> future : sent) {
+                if (future.join()) {
+                    answered++;
+                }
+            }
+            return answered;
+        });
+    }
+
+    /**
+     * Sends the same query to every worker in parallel.
+     * @return Completes with the results of the workers that answered, at the latest after
+     * timeoutMillis
+     */
+    <T> CompletableFuture<List<T>> gather(Collection<WorkerCommInterface> workers, Query<T> query,
+                                          Consumer<RemoteException> onFailure, long timeoutMillis) {
+        List<T> results = Collections.synchronizedList(new ArrayList<>());
+        return broadcast(workers, worker -> results.add(query.run(worker)), onFailure, timeoutMillis).thenApply(answered -> {
+            synchronized (results) {
+                return new ArrayList<>(results);
+            }
+        });
+    }
+
+    /**
+     * Drops a worker's lane; calls already queued on it still run.
+     */
+    void forget(WorkerCommInterface worker) {
+        lanes.remove(worker);
+    }
+
+    /**
+     * @return Lanes waiting for a pool thread
+     */
+    int backlog() {
+        return pool.getQueue().size();
+    }
+
+    private class Lane {
+        private final Queue<Runnable> calls = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        void submit(Runnable call) {
+            calls.add(call);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!calls.isEmpty() && scheduled.compareAndSet(false, true)) {
+                pool.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            Runnable call;
+            while ((call = calls.poll()) != null) {
+                call.run();
+            }
+            scheduled.set(false);
+            schedule(); // A call may have been added after the last poll
+        }
+    }
+}
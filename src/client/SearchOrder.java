@@ -0,0 +1,33 @@
+package client;
+
+import java.util.List;
+
+/**
+ * The order in which a job's range is searched, and the distribution of solutions it assumes.
+ * Every order covers the whole range exactly once; they only differ in what comes first.
+ * Orders are created through {@link SearchOrders}.
+ */
+interface SearchOrder {
+
+    /**
+     * @return Order name, as in -Dclient.order
+     */
+    String name();
+
+    /**
+     * @return Disjoint regions covering [start, end], the one to search first first. The
+     * scheduler consumes them in place, so every call returns new arrays.
+     */
+    List<long[]> regions(long start, long end);
+
+    /**
+     * @return Probability that the solution of a job over [start, end] lies in [from, to], as
+     * this order assumes it
+     */
+    double probability(long start, long end, long from, long to);
+
+    /**
+     * Learns from a solved job over [start, end]. Orders with a fixed distribution ignore it.
+     */
+    void solved(long start, long end, long solution);
+}
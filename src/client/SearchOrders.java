@@ -0,0 +1,363 @@
+package client;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The search orders of -Dclient.order:
+ *   random      a few regions in random order (default)
+ *   sequential  from the start of the range upwards
+ *   strided     many regions, each pass over them halving the largest unsearched gap
+ *   length      shortest decimal length first, taking every length to be equally likely
+ *   prior       likeliest first, by a histogram of past solutions (-Dclient.history)
+ * The first three assume every number is equally likely: they only differ in how early each
+ * part of the range gets looked at.
+ */
+final class SearchOrders {
+
+    private static final String ORDER = System.getProperty("client.order", "random");
+    // Number of regions visited in random order
+    private static final int RANDOM_REGIONS = 5;
+    // Regions of the strided order (-Dclient.orderRegions, rounded up to a power of two)
+    private static final int STRIDED_REGIONS = Integer.getInteger("client.orderRegions", 16);
+    // Histogram bins of the prior order, over each job's range
+    private static final int PRIOR_BINS = 64;
+    // File of past solutions, one "solution start end" line each (-Dclient.history). Read by
+    // the prior order at startup; every order appends the solutions it sees.
+    private static final String HISTORY = System.getProperty("client.history");
+    // Appends to the history off the caller's thread, as solutions arrive under the client's
+    // lock, through one writer kept open (historyOut, only touched on this thread)
+    private static final ExecutorService HISTORY_WRITER = HISTORY == null ? null : Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "search-history");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static PrintWriter historyOut;
+
+    static {
+        if (HISTORY_WRITER != null) {
+            // Lines still queued at exit are written before the JVM goes
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                HISTORY_WRITER.shutdown();
+                try {
+                    HISTORY_WRITER.awaitTermination(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+    }
+
+    private SearchOrders() {
+    }
+
+    /**
+     * @return The configured order, or random if the name is unknown
+     */
+    static SearchOrder configured() {
+        switch (ORDER.toLowerCase()) {
+            case "random":
+                return new RandomOrder();
+            case "sequential":
+                return new SequentialOrder();
+            case "strided":
+                return new StridedOrder();
+            case "length":
+                return new LengthOrder();
+            case "prior":
+                return PriorOrder.fromHistory();
+            default:
+                System.err.println("Unknown search order '" + ORDER + "'; using random.");
+                return new RandomOrder();
+        }
+    }
+
+    /**
+     * @return Share of [start, end] expected to be searched before the solution is reached,
+     * going through the regions in order, under the order's own distribution. 0.5 for any
+     * order if every number is equally likely.
+     */
+    static double expectedShare(SearchOrder order, long start, long end, List<long[]> regions) {
+        double before = 0;
+        double expected = 0;
+        for (long[] region : regions) {
+            double length = region[1] - region[0] + 1;
+            expected += order.probability(start, end, region[0], region[1]) * (before + length / 2);
+            before += length;
+        }
+        return expected / (end - start + 1);
+    }
+
+    // [start, end] in count regions of (almost) equal size, in ascending order
+    private static List<long[]> split(long start, long end, int count) {
+        long regionSize = Math.max(1, (end - start + 1) / count);
+        List<long[]> regions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long rStart = start + i * regionSize;
+            long rEnd = (i == count - 1) ? end : (rStart + regionSize - 1);
+            if (rStart <= rEnd) {
+                regions.add(new long[]{rStart, rEnd});
+            }
+        }
+        return regions;
+    }
+
+    // Length of the overlap of [from, to] and [start, end]
+    private static long overlap(long from, long to, long start, long end) {
+        return Math.max(0, Math.min(to, end) - Math.max(from, start) + 1);
+    }
+
+    /**
+     * Every number equally likely; solutions are only written to the history.
+     */
+    private abstract static class UniformOrder implements SearchOrder {
+        @Override
+        public double probability(long start, long end, long from, long to) {
+            return (double) overlap(from, to, start, end) / (end - start + 1);
+        }
+
+        @Override
+        public void solved(long start, long end, long solution) {
+            record(start, end, solution);
+        }
+    }
+
+    private static class SequentialOrder extends UniformOrder {
+        @Override
+        public String name() {
+            return "sequential";
+        }
+
+        @Override
+        public List<long[]> regions(long start, long end) {
+            return split(start, end, 1);
+        }
+    }
+
+    private static class RandomOrder extends UniformOrder {
+        @Override
+        public String name() {
+            return "random";
+        }
+
+        @Override
+        public List<long[]> regions(long start, long end) {
+            List<long[]> regions = split(start, end, RANDOM_REGIONS);
+            Collections.shuffle(regions);
+            return regions;
+        }
+    }
+
+    /**
+     * Regions in bit-reversed order (0, 8, 4, 12, 2, ... of 16): every pass halves the largest
+     * gap left, so no part of the range waits for long, whatever the true distribution.
+     */
+    private static class StridedOrder extends UniformOrder {
+        @Override
+        public String name() {
+            return "strided";
+        }
+
+        @Override
+        public List<long[]> regions(long start, long end) {
+            int bits = 32 - Integer.numberOfLeadingZeros(Math.max(1, STRIDED_REGIONS - 1));
+            List<long[]> split = split(start, end, 1 << bits);
+            List<long[]> regions = new ArrayList<>();
+            for (int i = 0; i < 1 << bits; i++) {
+                int index = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+                if (index < split.size()) {
+                    regions.add(split.get(index));
+                }
+            }
+            return regions;
+        }
+    }
+
+    /**
+     * Takes the number of digits of the solution to be uniform over the lengths in the range,
+     * and the number uniform within its length. One-digit numbers are then as likely as all
+     * ten-digit ones together, so lengths are searched shortest first.
+     */
+    private static class LengthOrder implements SearchOrder {
+        @Override
+        public String name() {
+            return "length";
+        }
+
+        @Override
+        public List<long[]> regions(long start, long end) {
+            List<long[]> regions = new ArrayList<>();
+            for (long[] stratum : strata()) {
+                long from = Math.max(start, stratum[0]);
+                long to = Math.min(end, stratum[1]);
+                if (from <= to) {
+                    regions.add(new long[]{from, to});
+                }
+            }
+            return regions;
+        }
+
+        @Override
+        public double probability(long start, long end, long from, long to) {
+            // Each length weighs the share of it inside [start, end]; normalized over the range
+            double total = 0;
+            double inside = 0;
+            for (long[] stratum : strata()) {
+                double size = stratum[1] - stratum[0] + 1;
+                total += overlap(stratum[0], stratum[1], start, end) / size;
+                inside += overlap(Math.max(from, start), Math.min(to, end), stratum[0], stratum[1]) / size;
+            }
+            return total == 0 ? 0 : inside / total;
+        }
+
+        @Override
+        public void solved(long start, long end, long solution) {
+            record(start, end, solution);
+        }
+
+        // [0, 9], [10, 99], ... up to the largest long
+        private static List<long[]> strata() {
+            List<long[]> strata = new ArrayList<>();
+            long low = 0;
+            for (long power = 10; ; power *= 10) {
+                strata.add(new long[]{low, power - 1});
+                low = power;
+                if (power > Long.MAX_VALUE / 10) {
+                    strata.add(new long[]{low, Long.MAX_VALUE});
+                    return strata;
+                }
+            }
+        }
+    }
+
+    /**
+     * A histogram of where past solutions fell in their jobs' ranges (as a share of the range,
+     * so problems of different sizes add up), over {@link #PRIOR_BINS} bins of the range. Every
+     * bin also counts one pseudo-solution, so parts never seen keep a chance and are still
+     * searched, last. Learns from each solution as it arrives.
+     */
+    private static class PriorOrder implements SearchOrder {
+        private final long[] counts = new long[PRIOR_BINS];
+        private long solutions;
+
+        /**
+         * @return A prior learned from -Dclient.history, or a flat one (sequential) without it
+         */
+        static PriorOrder fromHistory() {
+            PriorOrder order = new PriorOrder();
+            if (HISTORY == null) {
+                System.out.println("Search history: none (-Dclient.history); the prior order starts out sequential.");
+                return order;
+            }
+            if (!Files.exists(Paths.get(HISTORY))) {
+                System.out.println("Search history: " + HISTORY + " (new)");
+                return order;
+            }
+            try (BufferedReader reader = new BufferedReader(new FileReader(HISTORY))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.trim().split("\\s+");
+                    if (fields.length == 3) {
+                        order.count(Long.parseLong(fields[1]), Long.parseLong(fields[2]), Long.parseLong(fields[0]));
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                System.err.println("Could not read the search history at " + HISTORY + ": " + e.getMessage());
+            }
+            System.out.println("Search history: " + order.solutions + " past solution(s) from " + HISTORY);
+            return order;
+        }
+
+        @Override
+        public String name() {
+            return "prior";
+        }
+
+        @Override
+        public List<long[]> regions(long start, long end) {
+            List<long[]> bins = split(start, end, PRIOR_BINS);
+            List<Integer> densest = new ArrayList<>();
+            for (int i = 0; i < bins.size(); i++) {
+                densest.add(i);
+            }
+            // A stable sort keeps equally likely bins in ascending order
+            densest.sort(Comparator.comparingDouble(i -> -mass(bins.size(), i) / (bins.get(i)[1] - bins.get(i)[0] + 1)));
+            List<long[]> regions = new ArrayList<>();
+            for (int i : densest) {
+                regions.add(bins.get(i));
+            }
+            return regions;
+        }
+
+        @Override
+        public double probability(long start, long end, long from, long to) {
+            List<long[]> bins = split(start, end, PRIOR_BINS);
+            double probability = 0;
+            for (int i = 0; i < bins.size(); i++) {
+                long[] bin = bins.get(i);
+                double share = (double) overlap(from, to, bin[0], bin[1]) / (bin[1] - bin[0] + 1);
+                probability += share * mass(bins.size(), i);
+            }
+            return probability;
+        }
+
+        @Override
+        public void solved(long start, long end, long solution) {
+            count(start, end, solution);
+            record(start, end, solution);
+        }
+
+        private void count(long start, long end, long solution) {
+            if (solution < start || solution > end) {
+                return;
+            }
+            // The bin as split() cuts the range, so a solution on a bin edge counts for the bin
+            // it will be searched in
+            long binSize = Math.max(1, (end - start + 1) / PRIOR_BINS);
+            counts[(int) Math.min(PRIOR_BINS - 1, (solution - start) / binSize)]++;
+            solutions++;
+        }
+
+        // Probability of bin i of n: its past solutions plus one, over all of them
+        private double mass(int n, int i) {
+            if (n < PRIOR_BINS) {
+                return 1.0 / n; // Range too small to bin: no preference
+            }
+            return (counts[i] + 1.0) / (solutions + PRIOR_BINS);
+        }
+    }
+
+    // Appends a solution to the history file, if there is one, on HISTORY_WRITER
+    private static void record(long start, long end, long solution) {
+        if (HISTORY == null) {
+            return;
+        }
+        String line = solution + " " + start + " " + end;
+        HISTORY_WRITER.execute(() -> {
+            try {
+                if (historyOut == null) {
+                    historyOut = new PrintWriter(new FileWriter(HISTORY, true));
+                }
+                historyOut.println(line);
+                // Flushes, so a line is on disk by the time the next problem could use it
+                if (historyOut.checkError()) {
+                    System.err.println("Failed to record a solution in " + HISTORY + ".");
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to record a solution in " + HISTORY + ": " + e.getMessage());
+            }
+        });
+    }
+}
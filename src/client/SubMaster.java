@@ -0,0 +1,253 @@
+package client;
+
+import java.rmi.Naming;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import common.MasterRepInterface;
+import common.SearchTask;
+import common.WorkerCommInterface;
+
+/**
+ * A relay between the master and a group of workers, e.g. one rack of Pis. To the master it is
+ * a single worker as fast as its whole group; to its workers it is the master. Each task from
+ * above is split into chunks for the group like a problem, and only solutions, task completions
+ * and a progress heartbeat go back up, so the master's load does not grow with the group.
+ *
+ * Usage: java -Dclient.port=<port> -cp bin client.SubMaster <master-host>
+ * Its workers connect with -Dworker.masterPort=<port>.
+ */
+public class SubMaster extends CrackerClient implements WorkerCommInterface {
+
+    private static String masterHost = "localhost";
+    // Registry port of the master above (-Drelay.masterPort)
+    private static final int MASTER_PORT = Integer.getInteger("relay.masterPort", 1099);
+    // Heartbeat towards the master, as a worker's progress reports (-Dworker.progressMillis)
+    private static final long PROGRESS_MILLIS = Long.getLong("worker.progressMillis", 1000);
+    // Lookups from the master wait this long for the group (-Dclient.lookupMillis, halved so
+    // the answer still arrives within the master's own wait)
+    private static final long LOOKUP_MILLIS = Long.getLong("client.lookupMillis", 250) / 2;
+
+    static {
+        // The checkpoint reported upwards only advances over contiguous work
+        System.getProperties().putIfAbsent("client.order", "sequential");
+    }
+
+    private MasterRepInterface master;
+    // Tasks from the master: task id -> local jobs, one per job the task carries
+    private final Map<Long, Set<Long>> taskJobs = new HashMap<>();
+    // Local job -> {task id, the master's job id}
+    private final Map<Long, long[]> localJobs = new HashMap<>();
+    // Calls to the master, in order and outside the lock
+    private final ExecutorService upstream = Executors.newSingleThreadExecutor();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor();
+
+    protected SubMaster() throws RemoteException {
+        super();
+    }
+
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            masterHost = args[0];
+        }
+        try {
+            String localIP = common.NetworkUtils.getLocalAddress();
+            if (localIP != null) {
+                System.setProperty("java.rmi.server.hostname", localIP);
+                System.out.println("Set java.rmi.server.hostname to " + localIP);
+            } else {
+                System.err.println("Could not determine local IP, using default");
+            }
+
+            SubMaster relay = new SubMaster();
+            relay.start();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void start() throws Exception {
+        startMaster();
+        String url = "rmi://" + masterHost + ":" + MASTER_PORT + "/Master";
+        System.out.println("Connecting to master at " + url);
+        master = (MasterRepInterface) Naming.lookup(url);
+        // No workers yet: the group's speed follows as they register
+        master.registerWorker(this, "relay", 0);
+        System.out.println("Registered with master as a sub-master.");
+        heartbeat.scheduleAtFixedRate(this::reportProgress, PROGRESS_MILLIS, PROGRESS_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    // --- Towards the master: this relay is one worker ---
+
+    @Override
+    public synchronized void solve(SearchTask task) {
+        stop();
+        enqueue(task);
+    }
+
+    @Override
+    public synchronized void enqueue(SearchTask task) {
+        // The group searches whatever keyspace the master does
+        useKeyspace(task.keyspace);
+        Set<Long> jobs = new HashSet<>();
+        for (int i = 0; i < task.jobIds.length; i++) {
+            // Queued behind the earlier tasks; the jobs of one task ride in the same chunks
+            long local = openJob(task.hashes[i], task.start, task.end, false);
+            localJobs.put(local, new long[]{task.id, task.jobIds[i]});
+            jobs.add(local);
+        }
+        taskJobs.put(task.id, jobs);
+    }
+
+    // Answered by the group's caches, without the lock
+    @Override
+    public String[] lookup(String keyspace, byte[][] hashes) {
+        useKeyspace(keyspace);
+        return lookupCluster(hashes, LOOKUP_MILLIS);
+    }
+
+    // The group stops assigning the cut-off part; chunks it already handed out still finish
+    @Override
+    public synchronized void truncate(long taskId, long end) {
+        Set<Long> jobs = taskJobs.get(taskId);
+        if (jobs == null) {
+            return;
+        }
+        for (long local : new ArrayList<>(jobs)) {
+            if (isOpen(local)) {
+                truncateJob(local, end);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void cancel(long jobId) {
+        for (Map.Entry<Long, long[]> entry : new ArrayList<>(localJobs.entrySet())) {
+            if (entry.getValue()[1] == jobId) {
+                closeLocal(entry.getKey());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        for (long local : new ArrayList<>(localJobs.keySet())) {
+            closeLocal(local);
+        }
+    }
+
+    private void closeLocal(long local) {
+        long[] owner = localJobs.remove(local);
+        if (owner == null) {
+            return;
+        }
+        if (isOpen(local)) {
+            closeJob(local);
+        }
+        Set<Long> jobs = taskJobs.get(owner[0]);
+        jobs.remove(local);
+        if (jobs.isEmpty()) {
+            taskJobs.remove(owner[0]);
+        }
+    }
+
+    // --- From the group: aggregated before going up ---
+
+    @Override
+    protected void solved(long local, String solution) {
+        long jobId;
+        synchronized (this) {
+            long[] owner = localJobs.get(local);
+            if (owner == null) {
+                return; // Cancelled from above meanwhile
+            }
+            jobId = owner[1];
+            cancel(jobId); // Also drops the job from the group's other tasks
+        }
+        upstream.execute(() -> {
+            try {
+                master.submitInternalSolution(jobId, solution);
+            } catch (RemoteException e) {
+                System.err.println("Failed to submit solution to master: " + e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    protected synchronized void exhausted(long local) {
+        long[] owner = localJobs.remove(local);
+        if (owner == null) {
+            return;
+        }
+        long taskId = owner[0];
+        Set<Long> jobs = taskJobs.get(taskId);
+        jobs.remove(local);
+        if (!jobs.isEmpty()) {
+            return;
+        }
+        taskJobs.remove(taskId);
+        upstream.execute(() -> {
+            try {
+                master.taskCompleted(this, taskId);
+            } catch (RemoteException e) {
+                System.err.println("Failed to report a finished task to master: " + e.getMessage());
+            }
+        });
+    }
+
+    // The master sizes this relay's chunks by its group's speed, updated as workers report theirs
+    @Override
+    protected synchronized void reportCapacity(WorkerCommInterface worker, String backend, double hashesPerSecond) {
+        super.reportCapacity(worker, backend, hashesPerSecond);
+        double group = totalRate();
+        upstream.execute(() -> {
+            try {
+                master.reportCapacity(this, "relay", group);
+            } catch (RemoteException e) {
+                System.err.println("Failed to report capacity to master: " + e.getMessage());
+            }
+        });
+    }
+
+    // Reports how far each task got; a group without workers stays silent, so the master's
+    // lease runs out and its tasks go elsewhere
+    private void reportProgress() {
+        List<long[]> reports = new ArrayList<>();
+        synchronized (this) {
+            if (workerCount() == 0) {
+                return;
+            }
+            for (Map.Entry<Long, Set<Long>> task : taskJobs.entrySet()) {
+                long checkpoint = Long.MAX_VALUE;
+                for (long local : task.getValue()) {
+                    if (isOpen(local)) { // A solved job is closed before it leaves taskJobs
+                        checkpoint = Math.min(checkpoint, checkpoint(local));
+                    }
+                }
+                if (checkpoint == Long.MAX_VALUE) {
+                    continue;
+                }
+                reports.add(new long[]{task.getKey(), checkpoint});
+            }
+        }
+        upstream.execute(() -> {
+            for (long[] report : reports) {
+                try {
+                    master.reportProgress(this, report[0], report[1]);
+                } catch (RemoteException e) {
+                    System.err.println("Failed to report progress to master: " + e.getMessage());
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,361 @@
+package common;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.rmi.ConnectException;
+import java.rmi.RemoteException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One persistent connection of the binary transport, the alternative to RMI between master and
+ * workers. Frames are length-prefixed: [int length][byte type][long call id][payload], with
+ * length covering everything after itself. Either side may call the other at any time; a call
+ * waits for the ACK or ERROR frame carrying its id, so many calls can be in flight at once.
+ * An ACK may carry a payload: the call's result.
+ *
+ * Calls from the peer run one at a time in arrival order, off the reading thread, so a handler
+ * may call the peer in turn. A broken connection fails every pending and later call with a
+ * {@link ConnectException}, as RMI would.
+ */
+public final class BinaryLink {
+
+    // Worker -> master
+    public static final byte REGISTER = 1;     // hashes/s, backend
+    public static final byte FOUND = 2;        // job id, solution
+    public static final byte COMPLETED = 3;    // task id
+    public static final byte PROGRESS = 4;     // task id, checkpoint
+    // Master -> worker
+    public static final byte SOLVE = 5;        // task
+    public static final byte ENQUEUE = 6;      // task
+    public static final byte CANCEL = 7;       // job id
+    public static final byte STOP = 8;
+    // Replies
+    private static final byte ACK = 9;
+    private static final byte ERROR = 10;      // message
+    // Worker -> master, numbered after the replies so the earlier types keep their values
+    public static final byte CAPACITY = 11;    // hashes/s, backend
+    // Master -> worker
+    public static final byte TRUNCATE = 12;    // task id, end
+    public static final byte LOOKUP = 13;      // keyspace, hashes; replied with one candidate per hash
+
+    private static final int HEADER = 1 + Long.BYTES;
+    private static final int MAX_FRAME = 1 << 24;
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    /**
+     * Executes a call from the peer; an exception is sent back as an ERROR reply.
+     */
+    public interface Handler {
+        /**
+         * @return The payload of the ACK, or null for none
+         */
+        ByteBuffer handle(byte type, ByteBuffer payload) throws Exception;
+    }
+
+    private final SocketChannel channel;
+    private final long timeoutMillis;
+    private final Map<Long, CompletableFuture<ByteBuffer>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong nextCallId = new AtomicLong();
+    private final Object writeLock = new Object();
+    // One thread at most, and none while the link is quiet
+    private final ExecutorService requests = new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+        Thread thread = new Thread(r, "binary-link-requests");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean closed;
+    private Runnable onClose = () -> { };
+
+    /**
+     * @param timeoutMillis How long a call waits for its reply
+     */
+    public BinaryLink(SocketChannel channel, long timeoutMillis) throws IOException {
+        this.channel = channel;
+        this.timeoutMillis = timeoutMillis;
+        channel.configureBlocking(true);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    }
+
+    /**
+     * Runs once, after the connection broke or was closed.
+     */
+    public void onClose(Runnable action) {
+        onClose = action;
+    }
+
+    /**
+     * Starts reading; calls from the peer go to the handler.
+     */
+    public void start(Handler handler) {
+        Thread reader = new Thread(() -> read(handler), "binary-link-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Sends a call and waits for the peer to execute it.
+     * @return The payload of the reply (empty unless the call has a result)
+     * @throws RemoteException If the peer failed, did not answer in time, or the link is down
+     */
+    public ByteBuffer call(byte type, ByteBuffer payload) throws RemoteException {
+        if (closed) {
+            throw new ConnectException("Binary link closed");
+        }
+        long id = nextCallId.incrementAndGet();
+        CompletableFuture<ByteBuffer> reply = new CompletableFuture<>();
+        pending.put(id, reply);
+        try {
+            send(type, id, payload);
+            return reply.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (IOException e) {
+            close();
+            throw new ConnectException("Binary link broke", e);
+        } catch (TimeoutException e) {
+            throw new RemoteException("No reply within " + timeoutMillis + " ms");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RemoteException) {
+                throw (RemoteException) e.getCause();
+            }
+            throw new RemoteException("Call failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Interrupted while waiting for a reply", e);
+        } finally {
+            pending.remove(id);
+        }
+    }
+
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+        for (CompletableFuture<ByteBuffer> reply : pending.values()) {
+            reply.completeExceptionally(new ConnectException("Binary link closed"));
+        }
+        requests.shutdown();
+        onClose.run();
+    }
+
+    private void send(byte type, long id, ByteBuffer payload) throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES + HEADER + payload.remaining());
+        frame.putInt(HEADER + payload.remaining()).put(type).putLong(id).put(payload.duplicate()).flip();
+        synchronized (writeLock) {
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+        }
+    }
+
+    private void read(Handler handler) {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        try {
+            while (!closed) {
+                length.clear();
+                readFully(length);
+                int size = length.getInt(0);
+                if (size < HEADER || size > MAX_FRAME) {
+                    throw new IOException("Bad frame length " + size);
+                }
+                ByteBuffer frame = ByteBuffer.allocate(size);
+                readFully(frame);
+                frame.flip();
+                byte type = frame.get();
+                long id = frame.getLong();
+                if (type == ACK || type == ERROR) {
+                    CompletableFuture<ByteBuffer> reply = pending.get(id);
+                    if (reply != null) {
+                        if (type == ACK) {
+                            reply.complete(frame);
+                        } else {
+                            reply.completeExceptionally(new RemoteException(getString(frame)));
+                        }
+                    }
+                } else {
+                    requests.execute(() -> answer(handler, type, id, frame));
+                }
+            }
+        } catch (IOException e) {
+            // Peer gone
+        } finally {
+            close();
+        }
+    }
+
+    private void answer(Handler handler, byte type, long id, ByteBuffer payload) {
+        try {
+            ByteBuffer result = handler.handle(type, payload);
+            send(ACK, id, result == null ? EMPTY : result);
+        } catch (IOException e) {
+            close();
+        } catch (Exception e) {
+            try {
+                send(ERROR, id, string(String.valueOf(e)));
+            } catch (IOException broken) {
+                close();
+            }
+        }
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    // --- Payload encoding ---
+
+    public static ByteBuffer empty() {
+        return EMPTY;
+    }
+
+    public static ByteBuffer longs(long... values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * Long.BYTES);
+        for (long value : values) {
+            buffer.putLong(value);
+        }
+        return buffer.flip();
+    }
+
+    public static ByteBuffer solution(long jobId, String solution) {
+        byte[] text = solution.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(Long.BYTES + Integer.BYTES + text.length).putLong(jobId).putInt(text.length).put(text).flip();
+    }
+
+    public static ByteBuffer capacity(double hashesPerSecond, String backend) {
+        byte[] text = backend.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(Double.BYTES + Integer.BYTES + text.length).putDouble(hashesPerSecond).putInt(text.length).put(text).flip();
+    }
+
+    public static ByteBuffer string(String value) {
+        byte[] text = value.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(Integer.BYTES + text.length).putInt(text.length).put(text).flip();
+    }
+
+    public static String getString(ByteBuffer buffer) {
+        byte[] text = new byte[buffer.getInt()];
+        buffer.get(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * [int count] then count times [byte length][hash]
+     */
+    public static ByteBuffer hashes(byte[][] hashes) {
+        int size = Integer.BYTES;
+        for (byte[] hash : hashes) {
+            size += 1 + hash.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).putInt(hashes.length);
+        for (byte[] hash : hashes) {
+            buffer.put((byte) hash.length).put(hash);
+        }
+        return buffer.flip();
+    }
+
+    public static byte[][] getHashes(ByteBuffer buffer) {
+        byte[][] hashes = new byte[buffer.getInt()][];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = new byte[buffer.get() & 0xff];
+            buffer.get(hashes[i]);
+        }
+        return hashes;
+    }
+
+    /**
+     * [keyspace] then the hashes as in {@link #hashes}
+     */
+    public static ByteBuffer lookup(String keyspace, byte[][] hashes) {
+        ByteBuffer spec = string(keyspace);
+        ByteBuffer targets = hashes(hashes);
+        return ByteBuffer.allocate(spec.remaining() + targets.remaining()).put(spec).put(targets).flip();
+    }
+
+    /**
+     * [int count] then count times [int length][UTF-8], length -1 for null
+     */
+    public static ByteBuffer strings(String[] values) {
+        int size = Integer.BYTES;
+        byte[][] texts = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            texts[i] = values[i] == null ? null : values[i].getBytes(StandardCharsets.UTF_8);
+            size += Integer.BYTES + (texts[i] == null ? 0 : texts[i].length);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).putInt(values.length);
+        for (byte[] text : texts) {
+            if (text == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(text.length).put(text);
+            }
+        }
+        return buffer.flip();
+    }
+
+    public static String[] getStrings(ByteBuffer buffer) {
+        String[] values = new String[buffer.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            int length = buffer.getInt();
+            if (length >= 0) {
+                byte[] text = new byte[length];
+                buffer.get(text);
+                values[i] = new String(text, StandardCharsets.UTF_8);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * [id][keyspace][start][end][int count] then count times [job id][byte length][hash]
+     */
+    public static ByteBuffer task(SearchTask task) {
+        byte[] spec = task.keyspace.getBytes(StandardCharsets.UTF_8);
+        int size = 3 * Long.BYTES + Integer.BYTES + spec.length + Integer.BYTES;
+        for (byte[] hash : task.hashes) {
+            size += Long.BYTES + 1 + hash.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putLong(task.id).putInt(spec.length).put(spec);
+        buffer.putLong(task.start).putLong(task.end).putInt(task.jobIds.length);
+        for (int i = 0; i < task.jobIds.length; i++) {
+            buffer.putLong(task.jobIds[i]).put((byte) task.hashes[i].length).put(task.hashes[i]);
+        }
+        return buffer.flip();
+    }
+
+    public static SearchTask getTask(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        String keyspace = getString(buffer);
+        long start = buffer.getLong();
+        long end = buffer.getLong();
+        int count = buffer.getInt();
+        long[] jobIds = new long[count];
+        byte[][] hashes = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            jobIds[i] = buffer.getLong();
+            hashes[i] = new byte[buffer.get() & 0xff];
+            buffer.get(hashes[i]);
+        }
+        return new SearchTask(id, keyspace, start, end, jobIds, hashes);
+    }
+}
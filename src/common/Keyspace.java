@@ -0,0 +1,67 @@
+package common;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The candidates of a search, numbered from 0: maps an index to the bytes that are hashed for
+ * it. Jobs, chunks and progress are index ranges, so a keyspace of any size is split across
+ * the cluster without listing its candidates. Keyspaces are created through {@link Keyspaces}
+ * and are immutable; the candidate buffers they write to belong to the caller.
+ */
+public interface Keyspace {
+
+    /**
+     * Longest candidate: it must fit one padded MD5 block
+     */
+    int MAX_LENGTH = 55;
+
+    /**
+     * @return The spec it was parsed from, as in -Dclient.keyspace; workers get it with every task
+     */
+    String spec();
+
+    /**
+     * @return Number of candidates; their indexes are [0, size() - 1]
+     */
+    long size();
+
+    /**
+     * Writes the candidate at an index to the start of {@code out}, in O(length).
+     * @return Its length, at most {@link #MAX_LENGTH}
+     */
+    int write(long index, byte[] out);
+
+    /**
+     * Moves a candidate written by {@link #write} {@code n} indexes on, in place and without
+     * allocating. Indexes past the end wrap around.
+     * @return Position of the first byte that changed, or -1 if the length changed: the
+     * candidate must then be written again
+     */
+    int advance(byte[] candidate, int length, int n);
+
+    /**
+     * @return The index of a candidate, or -1 if it is not one of this keyspace
+     */
+    long index(String candidate);
+
+    /**
+     * @return Number of positions, each with its own character set, for backends that
+     * enumerate the keyspace on their own; 0 for decimal keyspaces, whose candidates vary in length
+     */
+    int charsetCount();
+
+    /**
+     * Copies the characters allowed at a position, in enumeration order, to the start of
+     * {@code out} (at least 256 bytes), without allocating.
+     * @return How many there are
+     */
+    int charset(int position, byte[] out);
+
+    /**
+     * Returns the candidate at an index as a String. Allocates; only call on a match.
+     */
+    default String candidate(long index) {
+        byte[] bytes = new byte[MAX_LENGTH];
+        return new String(bytes, 0, write(index, bytes), StandardCharsets.US_ASCII);
+    }
+}
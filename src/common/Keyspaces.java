@@ -0,0 +1,286 @@
+package common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The keyspaces of -Dclient.keyspace:
+ *   decimal          0, 1, 2, ... as plain numbers, up to the problem size the server gives (default)
+ *   decimal:<max>    0 to max as plain numbers, whatever the problem size
+ *   padded:<width>   the numbers of exactly width digits, zero-padded: 000 to 999 for 3
+ *   mask:<mask>      one character class per position, as in hashcat: ?d digits, ?l lower
+ *                    case, ?u upper case, ?s symbols, ?a all of them, ?? a '?'; anything else
+ *                    stands for itself. mask:?u?l?l?d is Aaa0 to Zzz9.
+ * Masks enumerate with the last position fastest, so padded:n is in numeric order.
+ */
+public final class Keyspaces {
+
+    /** Plain numbers: the index is the candidate */
+    public static final Keyspace DECIMAL = new Decimal("decimal", Long.MAX_VALUE);
+
+    private static final String DIGITS = "0123456789";
+    private static final String LOWER = "abcdefghijklmnopqrstuvwxyz";
+    private static final String UPPER = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final String SYMBOLS = " !\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~";
+
+    private Keyspaces() {
+    }
+
+    /**
+     * @param spec A spec as above; null for {@link #DECIMAL}
+     * @throws IllegalArgumentException If the spec is malformed, or the keyspace has more
+     * candidates than a long can number
+     */
+    public static Keyspace parse(String spec) {
+        if (spec == null || spec.equals(DECIMAL.spec())) {
+            return DECIMAL;
+        }
+        int colon = spec.indexOf(':');
+        String kind = colon < 0 ? spec : spec.substring(0, colon);
+        String argument = colon < 0 ? "" : spec.substring(colon + 1);
+        try {
+            switch (kind) {
+                case "decimal":
+                    long max = Long.parseLong(argument);
+                    if (max < 0 || max == Long.MAX_VALUE) {
+                        throw new IllegalArgumentException("Keyspace " + spec + ": max out of range");
+                    }
+                    return new Decimal(spec, max + 1);
+                case "padded":
+                    int width = Integer.parseInt(argument);
+                    if (width < 1 || width > 18) {
+                        throw new IllegalArgumentException("Keyspace " + spec + ": width must be 1 to 18");
+                    }
+                    return new Mask(spec, "?d".repeat(width));
+                case "mask":
+                    return new Mask(spec, argument);
+                default:
+                    throw new IllegalArgumentException("Unknown keyspace " + spec);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Keyspace " + spec + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return Whether a keyspace numbers its candidates as plain numbers, as {@link #DECIMAL} does
+     */
+    public static boolean isDecimal(Keyspace keyspace) {
+        return keyspace instanceof Decimal;
+    }
+
+    /**
+     * Numbers in decimal, below a bound. Every decimal keyspace maps an index to the same
+     * candidate, so digests cached under one are valid under all of them.
+     */
+    private static class Decimal implements Keyspace {
+        private final String spec;
+        private final long size;
+
+        Decimal(String spec, long size) {
+            this.spec = spec;
+            this.size = size;
+        }
+
+        @Override
+        public String spec() {
+            return spec;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public int write(long index, byte[] out) {
+            int length = 1;
+            for (long rest = index / 10; rest != 0; rest /= 10) {
+                length++;
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                out[i] = (byte) ('0' + index % 10);
+                index /= 10;
+            }
+            return length;
+        }
+
+        @Override
+        public int advance(byte[] candidate, int length, int n) {
+            int i = length - 1;
+            int carry = n;
+            while (carry > 0 && i >= 0) {
+                int digit = candidate[i] - '0' + carry;
+                candidate[i] = (byte) ('0' + digit % 10);
+                carry = digit / 10;
+                i--;
+            }
+            // Carried past the first digit: the candidate got longer
+            return carry == 0 ? i + 1 : -1;
+        }
+
+        @Override
+        public long index(String candidate) {
+            // As written: digits only, no leading zero
+            int length = candidate.length();
+            if (length == 0 || length > 19 || (length > 1 && candidate.charAt(0) == '0')) {
+                return -1;
+            }
+            long value = 0;
+            for (int i = 0; i < length; i++) {
+                char c = candidate.charAt(i);
+                if (c < '0' || c > '9') {
+                    return -1;
+                }
+                value = value * 10 + (c - '0');
+                if (value < 0) {
+                    return -1; // Past Long.MAX_VALUE
+                }
+            }
+            return value < size ? value : -1;
+        }
+
+        @Override
+        public int charsetCount() {
+            return 0;
+        }
+
+        @Override
+        public int charset(int position, byte[] out) {
+            throw new IndexOutOfBoundsException("Decimal keyspaces have no fixed positions");
+        }
+    }
+
+    /**
+     * Fixed-length candidates, each position from its own character set: a mixed-radix
+     * number whose digits are looked up in the sets.
+     */
+    private static class Mask implements Keyspace {
+        private final String spec;
+        private final byte[][] charsets;
+        // Position -> byte -> its place in the position's set
+        private final byte[][] ranks;
+        private final long size;
+
+        Mask(String spec, String mask) {
+            this.spec = spec;
+            List<String> sets = new ArrayList<>();
+            for (int i = 0; i < mask.length(); i++) {
+                char c = mask.charAt(i);
+                if (c > 0x7e || c < 0x20) {
+                    throw new IllegalArgumentException("Keyspace " + spec + ": only printable ASCII");
+                }
+                if (c != '?') {
+                    sets.add(String.valueOf(c));
+                    continue;
+                }
+                if (++i == mask.length()) {
+                    throw new IllegalArgumentException("Keyspace " + spec + ": '?' at the end");
+                }
+                sets.add(charClass(spec, mask.charAt(i)));
+            }
+            if (sets.isEmpty() || sets.size() > MAX_LENGTH) {
+                throw new IllegalArgumentException("Keyspace " + spec + ": 1 to " + MAX_LENGTH + " positions");
+            }
+            charsets = new byte[sets.size()][];
+            ranks = new byte[sets.size()][256];
+            long product = 1;
+            for (int p = 0; p < charsets.length; p++) {
+                charsets[p] = sets.get(p).getBytes(StandardCharsets.US_ASCII);
+                for (int r = 0; r < charsets[p].length; r++) {
+                    ranks[p][charsets[p][r]] = (byte) r;
+                }
+                try {
+                    product = Math.multiplyExact(product, charsets[p].length);
+                } catch (ArithmeticException e) {
+                    throw new IllegalArgumentException("Keyspace " + spec + ": more than " + Long.MAX_VALUE + " candidates");
+                }
+            }
+            size = product;
+        }
+
+        private static String charClass(String spec, char name) {
+            switch (name) {
+                case 'd':
+                    return DIGITS;
+                case 'l':
+                    return LOWER;
+                case 'u':
+                    return UPPER;
+                case 's':
+                    return SYMBOLS;
+                case 'a':
+                    return LOWER + UPPER + DIGITS + SYMBOLS;
+                case '?':
+                    return "?";
+                default:
+                    throw new IllegalArgumentException("Keyspace " + spec + ": unknown class ?" + name);
+            }
+        }
+
+        @Override
+        public String spec() {
+            return spec;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public int write(long index, byte[] out) {
+            long rest = Long.remainderUnsigned(index, size);
+            for (int p = charsets.length - 1; p >= 0; p--) {
+                byte[] set = charsets[p];
+                out[p] = set[(int) (rest % set.length)];
+                rest /= set.length;
+            }
+            return charsets.length;
+        }
+
+        @Override
+        public int advance(byte[] candidate, int length, int n) {
+            int p = length - 1;
+            int carry = n;
+            while (carry > 0 && p >= 0) {
+                byte[] set = charsets[p];
+                int digit = ranks[p][candidate[p] & 0xff] + carry;
+                candidate[p] = set[digit % set.length];
+                carry = digit / set.length;
+                p--;
+            }
+            // A carry out of the first position wraps around to index 0 and beyond
+            return p + 1;
+        }
+
+        @Override
+        public long index(String candidate) {
+            if (candidate.length() != charsets.length) {
+                return -1;
+            }
+            long index = 0;
+            for (int p = 0; p < charsets.length; p++) {
+                char c = candidate.charAt(p);
+                if (c > 0xff || charsets[p][ranks[p][c]] != c) {
+                    return -1;
+                }
+                index = index * charsets[p].length + ranks[p][c];
+            }
+            return index;
+        }
+
+        @Override
+        public int charsetCount() {
+            return charsets.length;
+        }
+
+        @Override
+        public int charset(int position, byte[] out) {
+            byte[] set = charsets[position];
+            System.arraycopy(set, 0, out, 0, set.length);
+            return set.length;
+        }
+    }
+}
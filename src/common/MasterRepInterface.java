@@ -4,23 +4,49 @@ import java.rmi.RemoteException;
 
 public interface MasterRepInterface extends Remote {
     /**
-     * Registers a worker with the master.
+     * Registers a worker with the master, with the speed it measured while warming up, so
+     * that even its first chunk is sized for it rather than for an average worker.
      * @param worker The worker stub
+     * @param backend Name of the hashing backend (e.g. native, vector, scalar)
+     * @param hashesPerSecond Measured speed of the whole worker; 0 if not measured
      * @throws RemoteException
      */
-    void registerWorker(WorkerCommInterface worker) throws RemoteException;
+    void registerWorker(WorkerCommInterface worker, String backend, double hashesPerSecond) throws RemoteException;
 
     /**
      * Called by a worker when it finds a solution.
+     * @param jobId The job whose target the solution hashes to
      * @param solution The numeric string solution
      * @throws RemoteException
      */
-    void submitInternalSolution(String solution) throws RemoteException;
+    void submitInternalSolution(long jobId, String solution) throws RemoteException;
 
     /**
-     * Called by a worker when it finishes a task range without finding a solution.
+     * Called by a worker when it finishes searching a task. Solutions found in it have
+     * already been submitted.
      * @param worker The worker stub
+     * @param taskId The id of the finished task
      * @throws RemoteException
      */
-    void taskCompleted(WorkerCommInterface worker) throws RemoteException;
+    void taskCompleted(WorkerCommInterface worker, long taskId) throws RemoteException;
+
+    /**
+     * Called periodically by a worker while it searches a task. Also serves as a heartbeat:
+     * a worker that stops reporting loses its range, which is re-queued from the checkpoint.
+     * @param worker The worker stub
+     * @param taskId The id of the task being searched
+     * @param checkpoint The highest number such that [start, checkpoint] of the task is fully checked (start - 1 if none)
+     * @throws RemoteException
+     */
+    void reportProgress(WorkerCommInterface worker, long taskId, long checkpoint) throws RemoteException;
+
+    /**
+     * Called when a worker's speed changes after it registered, e.g. by a sub-master whose
+     * group grows, so that its next chunks are sized for the new speed.
+     * @param worker The worker stub
+     * @param backend Name of the hashing backend (e.g. native, vector, scalar)
+     * @param hashesPerSecond Measured speed of the whole worker
+     * @throws RemoteException
+     */
+    void reportCapacity(WorkerCommInterface worker, String backend, double hashesPerSecond) throws RemoteException;
 }
@@ -0,0 +1,331 @@
+package common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Process-wide counters, histograms and gauges. Series are named the Prometheus way,
+ * optionally with labels: {@code worker_hashes_total{thread="3"}}. Updates are lock-free.
+ *
+ * {@link #expose} publishes every series as an attribute of one JMX bean, serves them as
+ * Prometheus text on http://localhost:&lt;port&gt;/metrics when -Dmetrics.port is set, and
+ * prints a one-line summary every -Dmetrics.summaryMillis (default 10000, 0 to disable)
+ * whenever it changed.
+ */
+public final class Metrics {
+
+    private static final int PORT = Integer.getInteger("metrics.port", 0);
+    private static final long SUMMARY_MILLIS = Long.getLong("metrics.summaryMillis", 10_000);
+
+    // Histogram bucket upper bounds, in seconds
+    private static final double[] BOUNDS = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1,
+            0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120, 300, Double.POSITIVE_INFINITY
+    };
+
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final Map<String, DoubleSupplier> GAUGES = new ConcurrentHashMap<>();
+    // Base name (without labels) -> help text
+    private static final Map<String, String> HELP = new ConcurrentHashMap<>();
+
+    private static final ScheduledExecutorService summary = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "metrics-summary");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Metrics() {
+    }
+
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void inc() {
+            value.increment();
+        }
+
+        public void add(long n) {
+            value.add(n);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    /**
+     * Durations in fixed buckets from 100 microseconds to 5 minutes, or other values in that
+     * span (e.g. shares of a range, in the buckets up to 1).
+     */
+    public static final class Histogram {
+        private final LongAdder[] buckets = new LongAdder[BOUNDS.length];
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+
+        private Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void observeNanos(long nanos) {
+            observe(nanos / 1e9);
+        }
+
+        public void observe(double value) {
+            int i = 0;
+            while (value > BOUNDS[i]) {
+                i++;
+            }
+            buckets[i].increment();
+            count.increment();
+            sum.add(value);
+        }
+
+        /**
+         * Records the time elapsed since {@code startNanos} (a System.nanoTime() value).
+         */
+        public void since(long startNanos) {
+            observeNanos(System.nanoTime() - startNanos);
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public double sum() {
+            return sum.sum();
+        }
+
+        /**
+         * @return Upper bound of the bucket holding quantile q (0-1), or 0 if empty
+         */
+        public double quantile(double q) {
+            long total = count();
+            if (total == 0) {
+                return 0;
+            }
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i].sum();
+                if (seen >= q * total) {
+                    return BOUNDS[i];
+                }
+            }
+            return BOUNDS[BOUNDS.length - 1];
+        }
+    }
+
+    public static Counter counter(String series, String help) {
+        HELP.putIfAbsent(baseName(series), help);
+        return COUNTERS.computeIfAbsent(series, s -> new Counter());
+    }
+
+    public static Histogram histogram(String series, String help) {
+        HELP.putIfAbsent(baseName(series), help);
+        return HISTOGRAMS.computeIfAbsent(series, s -> new Histogram());
+    }
+
+    /**
+     * @return Sum of the counters named {@code name}, across all their labels
+     */
+    public static long total(String name) {
+        long sum = 0;
+        for (Map.Entry<String, Counter> entry : COUNTERS.entrySet()) {
+            if (baseName(entry.getKey()).equals(name)) {
+                sum += entry.getValue().get();
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Registers a value read on demand; a later registration under the same name replaces it.
+     */
+    public static void gauge(String series, String help, DoubleSupplier value) {
+        HELP.putIfAbsent(baseName(series), help);
+        GAUGES.put(series, value);
+    }
+
+    /**
+     * Publishes the metrics of this process over JMX and, if configured, HTTP, and starts
+     * the periodic summary.
+     * @param process Names the JMX bean (wifighters:type=Metrics,process=...)
+     * @param summaryLine Builds the summary line; printed with a "[metrics]" prefix
+     */
+    public static synchronized void expose(String process, Supplier<String> summaryLine) {
+        try {
+            ObjectName name = new ObjectName("wifighters:type=Metrics,process=" + process);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), name);
+            }
+        } catch (Exception e) {
+            System.err.println("Could not register metrics bean: " + e.getMessage());
+        }
+
+        if (PORT > 0) {
+            try {
+                HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), PORT), 0);
+                http.createContext("/metrics", exchange -> {
+                    byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4");
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                });
+                http.setExecutor(null);
+                http.start();
+                System.out.println("Metrics at http://localhost:" + PORT + "/metrics");
+            } catch (IOException e) {
+                System.err.println("Could not start metrics endpoint on port " + PORT + ": " + e.getMessage());
+            }
+        }
+
+        if (SUMMARY_MILLIS > 0) {
+            String[] last = {null};
+            summary.scheduleAtFixedRate(() -> {
+                String line = summaryLine.get();
+                if (!line.equals(last[0])) { // Quiet while idle
+                    System.out.println("[metrics] " + line);
+                    last[0] = line;
+                }
+            }, SUMMARY_MILLIS, SUMMARY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return Every series in the Prometheus text format
+     */
+    public static String scrape() {
+        StringBuilder out = new StringBuilder();
+        Map<String, List<String>> lines = new TreeMap<>();
+        Map<String, String> types = new TreeMap<>();
+        COUNTERS.forEach((series, counter) -> {
+            types.put(baseName(series), "counter");
+            lines.computeIfAbsent(baseName(series), b -> new ArrayList<>()).add(series + " " + counter.get());
+        });
+        GAUGES.forEach((series, gauge) -> {
+            types.put(baseName(series), "gauge");
+            lines.computeIfAbsent(baseName(series), b -> new ArrayList<>()).add(series + " " + gauge.getAsDouble());
+        });
+        HISTOGRAMS.forEach((series, histogram) -> {
+            String base = baseName(series);
+            String labels = series.substring(base.length());
+            types.put(base, "histogram");
+            List<String> rows = lines.computeIfAbsent(base, b -> new ArrayList<>());
+            long cumulative = 0;
+            for (int i = 0; i < BOUNDS.length; i++) {
+                cumulative += histogram.buckets[i].sum();
+                String le = Double.isInfinite(BOUNDS[i]) ? "+Inf" : String.valueOf(BOUNDS[i]);
+                rows.add(base + "_bucket" + withLabel(labels, "le=\"" + le + "\"") + " " + cumulative);
+            }
+            rows.add(base + "_sum" + labels + " " + histogram.sum());
+            rows.add(base + "_count" + labels + " " + histogram.count());
+        });
+        for (Map.Entry<String, List<String>> entry : lines.entrySet()) {
+            String base = entry.getKey();
+            out.append("# HELP ").append(base).append(' ').append(HELP.getOrDefault(base, base)).append('\n');
+            out.append("# TYPE ").append(base).append(' ').append(types.get(base)).append('\n');
+            entry.getValue().stream().sorted().forEach(line -> out.append(line).append('\n'));
+        }
+        return out.toString();
+    }
+
+    private static String baseName(String series) {
+        int brace = series.indexOf('{');
+        return brace < 0 ? series : series.substring(0, brace);
+    }
+
+    // Adds a label to a possibly empty "{...}" label set
+    private static String withLabel(String labels, String label) {
+        return labels.isEmpty() ? "{" + label + "}" : labels.substring(0, labels.length() - 1) + "," + label + "}";
+    }
+
+    /**
+     * Every series as a read-only numeric attribute; histograms as _count, _sum, _p50 and _p99.
+     */
+    private static class Bean implements DynamicMBean {
+
+        private Map<String, Double> snapshot() {
+            Map<String, Double> values = new TreeMap<>();
+            COUNTERS.forEach((series, counter) -> values.put(series, (double) counter.get()));
+            GAUGES.forEach((series, gauge) -> values.put(series, gauge.getAsDouble()));
+            HISTOGRAMS.forEach((series, histogram) -> {
+                values.put(series + "_count", (double) histogram.count());
+                values.put(series + "_sum", histogram.sum());
+                values.put(series + "_p50", histogram.quantile(0.5));
+                values.put(series + "_p99", histogram.quantile(0.99));
+            });
+            return values;
+        }
+
+        @Override
+        public Object getAttribute(String attribute) {
+            return snapshot().get(attribute);
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) {
+            throw new UnsupportedOperationException("Metrics are read-only");
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Double> values = snapshot();
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                if (values.containsKey(attribute)) {
+                    list.add(new Attribute(attribute, values.get(attribute)));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            throw new UnsupportedOperationException("No operations");
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (String name : snapshot().keySet()) {
+                attributes.add(new MBeanAttributeInfo(name, "java.lang.Double", HELP.getOrDefault(baseName(name), name), true, false, false));
+            }
+            return new MBeanInfo(Bean.class.getName(), "Wi-Fighters metrics",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package common;
+
+import java.io.Serializable;
+
+/**
+ * A range of a keyspace handed to a worker, with the targets to check in it. One task can
+ * carry the targets of several jobs, so overlapping problems are searched in a single sweep.
+ */
+public class SearchTask implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** Master-assigned id, echoed back in taskCompleted and reportProgress */
+    public final long id;
+    /** The keyspace the range indexes, as in {@link Keyspaces#parse} */
+    public final String keyspace;
+    /** The starting index (inclusive) */
+    public final long start;
+    /** The ending index (inclusive) */
+    public final long end;
+    /** Jobs whose targets are checked, parallel to {@link #hashes} */
+    public final long[] jobIds;
+    /** The MD5 hash to crack for each job */
+    public final byte[][] hashes;
+
+    public SearchTask(long id, String keyspace, long start, long end, long[] jobIds, byte[][] hashes) {
+        this.id = id;
+        this.keyspace = keyspace;
+        this.start = start;
+        this.end = end;
+        this.jobIds = jobIds;
+        this.hashes = hashes;
+    }
+
+    @Override
+    public String toString() {
+        return start + "-" + end;
+    }
+}
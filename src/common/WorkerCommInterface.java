@@ -4,13 +4,49 @@ import java.rmi.RemoteException;
 
 public interface WorkerCommInterface extends Remote {
     /**
-     * Instructs the worker to start solving the problem in the given range.
-     * @param hash The MD5 hash to crack
-     * @param start The starting number (inclusive)
-     * @param end The ending number (inclusive)
+     * Instructs the worker to start solving the given task.
+     * Any task the worker is running or has queued is dropped first. Returns without waiting
+     * for the running task to stop; it is not reported.
+     * @param task The range to search and the targets to check in it
      * @throws RemoteException
      */
-    void solve(byte[] hash, long start, long end) throws RemoteException;
+    void solve(SearchTask task) throws RemoteException;
+
+    /**
+     * Queues a task behind the ones the worker already has, so it can move straight on
+     * to it without waiting for the master. Each task is reported with taskCompleted.
+     * @param task The range to search and the targets to check in it
+     * @throws RemoteException
+     */
+    void enqueue(SearchTask task) throws RemoteException;
+
+    /**
+     * Looks digests up in what the worker has already computed (its hash cache and index),
+     * without searching. The master asks every worker before it hands out a new problem.
+     * @param keyspace The keyspace the answers must come from, as in {@link SearchTask#keyspace}
+     * @param hashes The MD5 hashes to look up
+     * @return For each hash, a candidate whose MD5 it is, or null if the worker does not know one
+     * @throws RemoteException
+     */
+    String[] lookup(String keyspace, byte[][] hashes) throws RemoteException;
+
+    /**
+     * Shortens a running or queued task to [start, end]: the part above it was handed to
+     * another worker. The task is still reported with taskCompleted once [start, end] is
+     * checked. Unknown task ids are ignored.
+     * @param taskId The id of the task to shorten
+     * @param end The new last index (inclusive); below the task's start to drop all of it
+     * @throws RemoteException
+     */
+    void truncate(long taskId, long end) throws RemoteException;
+
+    /**
+     * Stops checking a job's target. Running and queued tasks go on for their other jobs;
+     * tasks left with no job are dropped without being reported.
+     * @param jobId The job that was solved or abandoned
+     * @throws RemoteException
+     */
+    void cancel(long jobId) throws RemoteException;
 
     /**
      * Stops the calculation on this worker.
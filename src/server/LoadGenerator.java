@@ -0,0 +1,227 @@
+package server;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The MockServer's "load" command: publishes a stream of problems to every registered team,
+ * either at a fixed rate or each as soon as every team has solved the one before, and writes
+ * a report line per problem and team with the time from publishing to a correct submission.
+ * A submission is correct if its MD5 is that of a problem the team still has open; anything
+ * else counts as wrong. Latency is measured from when a problem was due, so a server or team
+ * that falls behind the rate shows up in it. Configuration:
+ *   -Dload.problems=100          numbers to publish
+ *   -Dload.max=20000000          numbers are drawn from [0, max)
+ *   -Dload.seed=1                workload seed
+ *   -Dload.file=<path>           publish the numbers (or candidates of other keyspaces) in this file instead, one per line
+ *   -Dload.rate=0                problems per second (0: back-to-back, each after the last is solved)
+ *   -Dload.timeoutSeconds=60     give up on a problem after this long
+ *   -Dload.report=load_report.csv
+ */
+final class LoadGenerator {
+
+    private static final int PROBLEMS = Integer.getInteger("load.problems", 100);
+    private static final long MAX = Long.getLong("load.max", 20_000_000);
+    private static final long SEED = Long.getLong("load.seed", 1);
+    private static final String FILE = System.getProperty("load.file");
+    private static final double RATE = Double.parseDouble(System.getProperty("load.rate", "0"));
+    private static final long TIMEOUT_SECONDS = Long.getLong("load.timeoutSeconds", 60);
+    private static final String REPORT = System.getProperty("load.report", "load_report.csv");
+
+    private final MockServer server;
+    // Published problems, oldest first; guarded by this
+    private final List<Problem> problems = new ArrayList<>();
+    // Submissions that matched no open problem; guarded by this
+    private final List<Wrong> wrong = new ArrayList<>();
+    private long begin;
+
+    LoadGenerator(MockServer server) {
+        this.server = server;
+    }
+
+    void run() throws Exception {
+        List<String> numbers = workload();
+        System.out.println("Load: " + numbers.size() + " problem(s), "
+                + (RATE > 0 ? RATE + "/s" : "back-to-back") + ", report to " + REPORT);
+        begin = System.nanoTime();
+        for (int i = 0; i < numbers.size(); i++) {
+            String number = numbers.get(i);
+            int problemSize = MockServer.problemSize(number);
+            if (problemSize < 0) {
+                System.out.println("Skipping " + number + ": outside [0, " + Integer.MAX_VALUE + "].");
+                continue;
+            }
+            // Open loop at a rate: due on schedule, however far behind the teams are
+            long due = RATE > 0 ? begin + (long) (i * 1e9 / RATE) : System.nanoTime();
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            Problem problem = new Problem(i, number, MockServer.getMD5(number), due);
+            synchronized (this) {
+                problems.add(problem);
+                // Registered before publishing, so an instant answer finds the problem open
+                problem.teams.addAll(server.publish(problem.hash, problemSize));
+            }
+            if (RATE <= 0) {
+                awaitSettled();
+            }
+        }
+        awaitSettled();
+        report();
+    }
+
+    /**
+     * Credits a submission to the oldest problem the team has open with the same hash.
+     */
+    synchronized void submitted(String team, String solution, long at) {
+        byte[] hash;
+        try {
+            hash = MockServer.getMD5(solution);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        for (Problem problem : problems) {
+            if (Arrays.equals(problem.hash, hash) && problem.teams.contains(team) && !problem.solvedAt.containsKey(team)) {
+                problem.solvedAt.put(team, at);
+                notifyAll();
+                return;
+            }
+        }
+        wrong.add(new Wrong(team, solution, at));
+    }
+
+    // Waits until every published problem is solved by every team it went to or timed out
+    private synchronized void awaitSettled() throws InterruptedException {
+        while (true) {
+            long now = System.nanoTime();
+            long next = Long.MAX_VALUE;
+            for (Problem problem : problems) {
+                long deadline = problem.due + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+                if (problem.solvedAt.size() < problem.teams.size() && deadline > now) {
+                    next = Math.min(next, deadline);
+                }
+            }
+            if (next == Long.MAX_VALUE) {
+                return;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, next - now);
+        }
+    }
+
+    private List<String> workload() throws IOException {
+        List<String> numbers = new ArrayList<>();
+        if (FILE != null) {
+            for (String line : Files.readAllLines(Paths.get(FILE))) {
+                if (!line.isBlank()) {
+                    numbers.add(line.trim());
+                }
+            }
+            return numbers;
+        }
+        Random random = new Random(SEED);
+        for (int i = 0; i < PROBLEMS; i++) {
+            numbers.add(String.valueOf((long) (random.nextDouble() * MAX)));
+        }
+        return numbers;
+    }
+
+    // One CSV line per problem and team, plus one per wrong submission; a summary per team
+    private synchronized void report() throws IOException {
+        long end = System.nanoTime();
+        Map<String, List<Double>> latencies = new LinkedHashMap<>();
+        Map<String, Integer> wrongCounts = new HashMap<>();
+        long lastSolved = begin;
+        try (PrintWriter out = new PrintWriter(new FileWriter(REPORT))) {
+            out.println("problem,number,team,published_ms,latency_ms,status");
+            for (Problem problem : problems) {
+                for (String team : problem.teams) {
+                    List<Double> list = latencies.computeIfAbsent(team, t -> new ArrayList<>());
+                    Long at = problem.solvedAt.get(team);
+                    if (at == null) {
+                        out.printf(Locale.ROOT, "%d,%s,%s,%.1f,,timeout%n", problem.index, problem.number, team, millis(begin, problem.due));
+                        continue;
+                    }
+                    list.add(millis(problem.due, at));
+                    lastSolved = Math.max(lastSolved, at);
+                    out.printf(Locale.ROOT, "%d,%s,%s,%.1f,%.1f,solved%n", problem.index, problem.number, team,
+                            millis(begin, problem.due), millis(problem.due, at));
+                }
+            }
+            for (Wrong submission : wrong) {
+                wrongCounts.merge(submission.team, 1, Integer::sum);
+                out.printf(Locale.ROOT, ",%s,%s,%.1f,,wrong%n", submission.solution, submission.team, millis(begin, submission.at));
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "Load finished: %d problem(s) in %.1f s%n", problems.size(), (end - begin) / 1e9);
+        for (Map.Entry<String, List<Double>> entry : latencies.entrySet()) {
+            List<Double> list = entry.getValue();
+            list.sort(null);
+            long published = problems.stream().filter(p -> p.teams.contains(entry.getKey())).count();
+            double seconds = (lastSolved - begin) / 1e9;
+            System.out.printf(Locale.ROOT, "  %s: solved %d/%d, wrong %d, %.2f problems/s, latency p50 %.0f ms, p99 %.0f ms, max %.0f ms%n",
+                    entry.getKey(), list.size(), published, wrongCounts.getOrDefault(entry.getKey(), 0),
+                    seconds > 0 ? list.size() / seconds : 0, percentile(list, 50), percentile(list, 99), percentile(list, 100));
+        }
+        System.out.println("Report written to " + REPORT);
+    }
+
+    private static double millis(long from, long to) {
+        return (to - from) / 1e6;
+    }
+
+    private static double percentile(List<Double> sorted, double p) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p / 100 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index)));
+    }
+
+    /**
+     * One published problem: when it was due and when each team solved it.
+     */
+    private static class Problem {
+        final int index;
+        final String number;
+        final byte[] hash;
+        final long due;
+        final List<String> teams = new ArrayList<>();
+        final Map<String, Long> solvedAt = new HashMap<>();
+
+        Problem(int index, String number, byte[] hash, long due) {
+            this.index = index;
+            this.number = number;
+            this.hash = hash;
+            this.due = due;
+        }
+    }
+
+    /**
+     * A submission that matched no problem its team had open.
+     */
+    private static class Wrong {
+        final String team;
+        final String solution;
+        final long at;
+
+        Wrong(String team, String solution, long at) {
+            this.team = team;
+            this.solution = solution;
+            this.at = at;
+        }
+    }
+}
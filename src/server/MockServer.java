@@ -6,15 +6,26 @@ import java.rmi.registry.LocateRegistry;
 import java.rmi.server.UnicastRemoteObject;
 import client.ClientCommInterface;
 import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MockServer extends UnicastRemoteObject implements ServerCommInterface {
 
-    private ClientCommInterface registeredClient;
+    // Registered teams by name, each with its own callback lane
+    private final Map<String, Team> teams = new ConcurrentHashMap<>();
+    // The running load, told about every submission (null outside the load command)
+    private volatile LoadGenerator load;
 
     // Config
     private static final int PORT = 1099;
     private static final String SERVICE_NAME = "server";
+    // Smallest problem size published, whatever the number
+    private static final int MIN_PROBLEM_SIZE = 1000000;
 
     protected MockServer() throws RemoteException {
         super();
@@ -45,7 +56,7 @@ public class MockServer extends UnicastRemoteObject implements ServerCommInterfa
 
             // Interaction loop
             Scanner scanner = new Scanner(System.in);
-            System.out.println("\nEnter command: publish <number> OR exit");
+            System.out.println("\nEnter command: publish <number or candidate> OR load OR exit");
 
             while (scanner.hasNext()) {
                 String cmd = scanner.next();
@@ -59,8 +70,10 @@ public class MockServer extends UnicastRemoteObject implements ServerCommInterfa
                     } else {
                         System.out.println("Missing number for publish command.");
                     }
+                } else if (cmd.equalsIgnoreCase("load")) {
+                    server.runLoad();
                 }
-                System.out.println("\nEnter command: publish <number> OR exit");
+                System.out.println("\nEnter command: publish <number or candidate> OR load OR exit");
             }
             System.out.println("MockServer exiting cleanly.");
             scanner.close();
@@ -73,39 +86,122 @@ public class MockServer extends UnicastRemoteObject implements ServerCommInterfa
 
     @Override
     public void register(String teamName, ClientCommInterface cc) throws Exception {
-        this.registeredClient = cc;
-        System.out.println("Team registered: " + teamName);
+        Team previous = teams.put(teamName, new Team(teamName, cc));
+        if (previous != null) {
+            previous.lane.shutdown();
+        }
+        System.out.println("Team registered: " + teamName + (previous != null ? " (again)" : ""));
     }
 
     @Override
     public void submitSolution(String name, String sol) throws Exception {
         System.out.println("!!! SOLUTION SUBMITTED by " + name + ": " + sol + " !!!");
+        LoadGenerator current = load;
+        if (current != null) {
+            current.submitted(name, sol, System.nanoTime());
+        }
     }
 
     public void publish(String numberStr) {
-        if (registeredClient == null) {
+        if (teams.isEmpty()) {
             System.out.println("No client registered.");
             return;
         }
 
         try {
-            byte[] hash = getMD5(numberStr);
-            // Problem size must be large enough to cover the number
-            int problemSize = Integer.parseInt(numberStr) * 2; // Simple heuristic for test
-            // Or just a large number
-            if (problemSize < 1000000)
-                problemSize = 1000000;
-
+            int problemSize = problemSize(numberStr);
+            if (problemSize < 0) {
+                System.out.println("Cannot publish " + numberStr + ": outside [0, " + Integer.MAX_VALUE + "].");
+                return;
+            }
             System.out.println("Publishing problem for hash of " + numberStr);
-            registeredClient.publishProblem(hash, problemSize);
+            publish(getMD5(numberStr), problemSize);
 
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    private byte[] getMD5(String input) throws Exception {
+    /**
+     * Publishes a problem to every registered team, without waiting for them: each team's
+     * callbacks run in order on its own lane, and a slow or dead team holds up only itself.
+     *
+     * @return Names of the teams it was published to
+     */
+    List<String> publish(byte[] hash, int problemSize) {
+        List<String> names = new ArrayList<>();
+        for (Team team : teams.values()) {
+            names.add(team.name);
+            team.lane.execute(() -> {
+                try {
+                    team.client.publishProblem(hash, problemSize);
+                } catch (Exception e) {
+                    System.err.println("Failed to publish to " + team.name + ": " + e.getMessage());
+                }
+            });
+        }
+        return names;
+    }
+
+    /**
+     * Size of the range published for a candidate. Candidates of other keyspaces (e.g.
+     * -Dclient.keyspace=mask:?l?l?d?d) are not numbers; clients searching those ignore the
+     * problem size, so they get the smallest one.
+     * @return As {@link #problemSize(long)} for a number, else {@link #MIN_PROBLEM_SIZE}
+     */
+    static int problemSize(String candidate) {
+        return candidate.matches("-?\\d{1,18}") ? problemSize(Long.parseLong(candidate)) : MIN_PROBLEM_SIZE;
+    }
+
+    /**
+     * @return Size of the range published for a number: twice the number, so it lies inside,
+     * but at least {@link #MIN_PROBLEM_SIZE}; -1 if the number does not fit the contest's int range
+     */
+    static int problemSize(long number) {
+        if (number < 0 || number > Integer.MAX_VALUE) {
+            return -1;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_PROBLEM_SIZE, 2 * number));
+    }
+
+    // Runs the configured load to the end; submissions are passed to it meanwhile
+    private void runLoad() {
+        if (teams.isEmpty()) {
+            System.out.println("No client registered.");
+            return;
+        }
+        LoadGenerator generator = new LoadGenerator(this);
+        load = generator;
+        try {
+            generator.run();
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            load = null;
+        }
+    }
+
+    static byte[] getMD5(String input) throws Exception {
         MessageDigest md = MessageDigest.getInstance("MD5");
         return md.digest(input.getBytes());
     }
+
+    /**
+     * A registered team and the single thread its callbacks are made on.
+     */
+    private static class Team {
+        final String name;
+        final ClientCommInterface client;
+        final ExecutorService lane;
+
+        Team(String name, ClientCommInterface client) {
+            this.name = name;
+            this.client = client;
+            this.lane = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "publish-" + name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
 }
@@ -0,0 +1,81 @@
+package worker;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.rmi.RemoteException;
+
+import common.BinaryLink;
+import common.MasterRepInterface;
+import common.WorkerCommInterface;
+
+/**
+ * The master as seen by a worker over the binary transport (-Dworker.transport=binary).
+ * Registering hands the worker the link: the master's calls arrive on it from then on.
+ */
+final class BinaryMasterLink implements MasterRepInterface {
+
+    private final BinaryLink link;
+
+    private BinaryMasterLink(BinaryLink link) {
+        this.link = link;
+    }
+
+    static BinaryMasterLink connect(String host, int port, long timeoutMillis) throws IOException {
+        BinaryLink link = new BinaryLink(SocketChannel.open(new InetSocketAddress(host, port)), timeoutMillis);
+        link.onClose(() -> System.err.println("Binary link to the master closed."));
+        return new BinaryMasterLink(link);
+    }
+
+    @Override
+    public void registerWorker(WorkerCommInterface worker, String backend, double hashesPerSecond) throws RemoteException {
+        link.start((type, payload) -> handle(worker, type, payload));
+        link.call(BinaryLink.REGISTER, BinaryLink.capacity(hashesPerSecond, backend));
+    }
+
+    private static ByteBuffer handle(WorkerCommInterface worker, byte type, ByteBuffer payload) throws RemoteException {
+        switch (type) {
+            case BinaryLink.SOLVE:
+                worker.solve(BinaryLink.getTask(payload));
+                break;
+            case BinaryLink.ENQUEUE:
+                worker.enqueue(BinaryLink.getTask(payload));
+                break;
+            case BinaryLink.LOOKUP:
+                return BinaryLink.strings(worker.lookup(BinaryLink.getString(payload), BinaryLink.getHashes(payload)));
+            case BinaryLink.TRUNCATE:
+                worker.truncate(payload.getLong(), payload.getLong());
+                break;
+            case BinaryLink.CANCEL:
+                worker.cancel(payload.getLong());
+                break;
+            case BinaryLink.STOP:
+                worker.stop();
+                break;
+            default:
+                throw new IllegalArgumentException("Unexpected frame type " + type);
+        }
+        return null;
+    }
+
+    @Override
+    public void submitInternalSolution(long jobId, String solution) throws RemoteException {
+        link.call(BinaryLink.FOUND, BinaryLink.solution(jobId, solution));
+    }
+
+    @Override
+    public void taskCompleted(WorkerCommInterface worker, long taskId) throws RemoteException {
+        link.call(BinaryLink.COMPLETED, BinaryLink.longs(taskId));
+    }
+
+    @Override
+    public void reportProgress(WorkerCommInterface worker, long taskId, long checkpoint) throws RemoteException {
+        link.call(BinaryLink.PROGRESS, BinaryLink.longs(taskId, checkpoint));
+    }
+
+    @Override
+    public void reportCapacity(WorkerCommInterface worker, String backend, double hashesPerSecond) throws RemoteException {
+        link.call(BinaryLink.CAPACITY, BinaryLink.capacity(hashesPerSecond, backend));
+    }
+}
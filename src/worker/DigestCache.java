@@ -0,0 +1,105 @@
+package worker;
+
+/**
+ * Rainbow table of MD5 digest -> candidate with a fixed memory budget.
+ * Entries live in one primitive array, grouped in 4-slot buckets (one 64-byte cache line).
+ * The high half of the digest picks the bucket and the low half is stored as the tag, so a
+ * slot costs 16 bytes and there are no per-entry objects.
+ *
+ * Writers never lock: concurrent puts may overwrite or tear each other's entries. The cache
+ * is therefore lossy, and a candidate returned by {@link #get} must be verified by hashing it
+ * again before it is trusted.
+ */
+final class DigestCache {
+
+    static final long ABSENT = -1;
+
+    private static final int SLOT_LONGS = 2;         // tag, candidate
+    private static final int BUCKET_SLOTS = 4;
+    private static final int BUCKET_LONGS = SLOT_LONGS * BUCKET_SLOTS;
+    private static final int MAX_LONGS = 1 << 30;
+
+    private final long[] table;
+    private final int bucketMask;
+
+    /**
+     * @param budgetBytes Memory to use for the table; rounded down to a power of two
+     */
+    DigestCache(long budgetBytes) {
+        long longs = Math.max(BUCKET_LONGS, Math.min(MAX_LONGS, budgetBytes / Long.BYTES));
+        int size = Integer.highestOneBit((int) longs);
+        table = new long[size];
+        bucketMask = size / BUCKET_LONGS - 1;
+    }
+
+    /**
+     * Builds one half of a cache key from two little-endian digest words.
+     */
+    static long key(int lo, int hi) {
+        return (lo & 0xffffffffL) | ((long) hi << 32);
+    }
+
+    long capacity() {
+        return table.length / SLOT_LONGS;
+    }
+
+    long sizeInBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    /**
+     * Estimates the share of used slots from an evenly spread sample of at most
+     * {@code sampleSlots} slots, so it stays cheap on large tables.
+     * @return A value between 0 and 1
+     */
+    double occupancy(int sampleSlots) {
+        long[] t = table;
+        int slots = t.length / SLOT_LONGS;
+        int stride = Math.max(1, slots / Math.max(1, sampleSlots));
+        int sampled = 0;
+        int used = 0;
+        for (int slot = 0; slot < slots; slot += stride) {
+            sampled++;
+            if (t[slot * SLOT_LONGS] != 0) {
+                used++;
+            }
+        }
+        return (double) used / sampled;
+    }
+
+    void put(long k0, long k1, long candidate) {
+        long[] t = table;
+        long tag = tag(k0);
+        int base = ((int) k1 & bucketMask) * BUCKET_LONGS;
+        int victim = base + ((int) (k0 >>> 32) & (BUCKET_SLOTS - 1)) * SLOT_LONGS;
+        for (int i = base; i < base + BUCKET_LONGS; i += SLOT_LONGS) {
+            long current = t[i];
+            if (current == 0 || current == tag) {
+                victim = i;
+                break;
+            }
+        }
+        t[victim + 1] = candidate;
+        t[victim] = tag;
+    }
+
+    /**
+     * @return The cached candidate for the digest, or {@link #ABSENT}. Unverified.
+     */
+    long get(long k0, long k1) {
+        long[] t = table;
+        long tag = tag(k0);
+        int base = ((int) k1 & bucketMask) * BUCKET_LONGS;
+        for (int i = base; i < base + BUCKET_LONGS; i += SLOT_LONGS) {
+            if (t[i] == tag) {
+                return t[i + 1];
+            }
+        }
+        return ABSENT;
+    }
+
+    // 0 marks an empty slot
+    private static long tag(long k0) {
+        return k0 == 0 ? 1 : k0;
+    }
+}
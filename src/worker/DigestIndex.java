@@ -0,0 +1,287 @@
+package worker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import common.Keyspaces;
+
+/**
+ * Persistent digest -> number index shared by every run of a worker, for the decimal keyspaces.
+ * The index is a hash-partitioned table in {@code digests.idx}, read and written through
+ * memory-mapped segments, so opening it costs nothing and a lookup touches one or two pages.
+ * Ranges whose every candidate made it into the table are appended to {@code swept.ranges};
+ * a target that is missing from the index cannot be inside a swept range.
+ *
+ * Layout matches {@link DigestCache}: 16-byte slots (tag, candidate) in 4-slot buckets. Probing
+ * stays inside a 64 KiB partition and an insert claims its slot with a compare-and-set on the
+ * tag, so the table never silently drops an entry; when a partition is full the index stops
+ * recording swept ranges. Nothing takes a lock per candidate: the search threads insert and
+ * look up in parallel.
+ *
+ * Swept ranges are logged in batches: every -Dworker.indexFlushMillis (default 1000), the
+ * segments written since the last batch are forced to disk, then the ranges finished
+ * meanwhile are appended to the log, so the log never claims entries that are not on disk.
+ */
+final class DigestIndex {
+
+    private static final String TABLE_FILE = "digests.idx";
+    private static final String RANGES_FILE = "swept.ranges";
+
+    private static final int SLOT_BYTES = 16;
+    private static final int BUCKET_SLOTS = 4;
+    private static final int BUCKET_BYTES = SLOT_BYTES * BUCKET_SLOTS;
+    private static final int PARTITION_BUCKETS = 1024;
+    private static final int PARTITION_BYTES = BUCKET_BYTES * PARTITION_BUCKETS;
+    private static final int MAX_PROBES = 16;
+    private static final long SEGMENT_BYTES = 1L << 28;
+    private static final long FLUSH_MILLIS = Long.getLong("worker.indexFlushMillis", 1000);
+    // Atomic access to the longs of a mapped segment, in the byte order of its getLong
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    // Never remapped: read without locking
+    private final MappedByteBuffer[] segments;
+    // 1 for segments written since the last flush
+    private final AtomicIntegerArray dirty;
+    private final int partitionsPerSegment;
+    private final int partitions;
+    private final FileChannel rangesChannel;
+    // start -> end (inclusive) of merged swept ranges. Replaced, never changed, on each flush.
+    private volatile TreeMap<Long, Long> swept = new TreeMap<>();
+    // Ranges swept since the last flush; guarded by itself
+    private final List<long[]> pending = new ArrayList<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "digest-index-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean saturated = false;
+
+    /**
+     * Opens the index configured with -Dworker.index=&lt;dir&gt; (size of a new index:
+     * -Dworker.indexBytes, default 256 MiB), or returns null if none is configured.
+     */
+    static DigestIndex openConfigured() {
+        String dir = System.getProperty("worker.index");
+        if (dir == null) {
+            return null;
+        }
+        try {
+            DigestIndex index = new DigestIndex(new File(dir), Long.getLong("worker.indexBytes", 256L << 20));
+            System.out.println("Digest index opened at " + dir + " (" + index.swept.size() + " swept ranges)");
+            return index;
+        } catch (IOException e) {
+            System.err.println("Could not open digest index at " + dir + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    DigestIndex(File dir, long newSizeBytes) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create directory " + dir);
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(new File(dir, TABLE_FILE), "rw")) {
+            long size = file.length();
+            if (size == 0) {
+                size = Math.max(PARTITION_BYTES, newSizeBytes / PARTITION_BYTES * PARTITION_BYTES);
+                file.setLength(size); // sparse: pages are only allocated once written
+            }
+            partitions = (int) (size / PARTITION_BYTES);
+            partitionsPerSegment = (int) (SEGMENT_BYTES / PARTITION_BYTES);
+            int segmentCount = (partitions + partitionsPerSegment - 1) / partitionsPerSegment;
+            segments = new MappedByteBuffer[segmentCount];
+            FileChannel channel = file.getChannel();
+            for (int i = 0; i < segmentCount; i++) {
+                long offset = i * SEGMENT_BYTES;
+                segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, offset, Math.min(SEGMENT_BYTES, partitions * (long) PARTITION_BYTES - offset));
+            }
+        }
+
+        dirty = new AtomicIntegerArray(segments.length);
+
+        rangesChannel = FileChannel.open(new File(dir, RANGES_FILE).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer record = ByteBuffer.allocate(16);
+        long position = 0;
+        TreeMap<Long, Long> logged = new TreeMap<>();
+        while (rangesChannel.read(record, position) == 16) {
+            record.flip();
+            addSwept(logged, record.getLong(), record.getLong());
+            record.clear();
+            position += 16;
+        }
+        swept = logged;
+
+        flusher.scheduleWithFixedDelay(this::flush, FLUSH_MILLIS, FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+        // Ranges finished just before exit are still logged
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush));
+    }
+
+    /**
+     * Stores a digest (as the two {@link DigestCache#key} halves) and its candidate.
+     */
+    void put(long k0, long k1, long candidate) {
+        long tag = tag(k0);
+        int partition = partition(k1);
+        int segmentIndex = partition / partitionsPerSegment;
+        ByteBuffer segment = segments[segmentIndex];
+        int base = (partition % partitionsPerSegment) * PARTITION_BYTES;
+        int bucket = (int) k1 & (PARTITION_BUCKETS - 1);
+
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int offset = base + ((bucket + probe) & (PARTITION_BUCKETS - 1)) * BUCKET_BYTES;
+            for (int slot = offset; slot < offset + BUCKET_BYTES; slot += SLOT_BYTES) {
+                long current = (long) LONGS.getAcquire(segment, slot);
+                if (current == 0) {
+                    if (LONGS.compareAndSet(segment, slot, 0L, tag)) {
+                        // A lookup in between sees candidate 0, which fails its re-hash
+                        LONGS.setRelease(segment, slot + 8, candidate);
+                        // After the write: a flush that clears the flag first forces it
+                        if (dirty.get(segmentIndex) == 0) {
+                            dirty.set(segmentIndex, 1);
+                        }
+                        return;
+                    }
+                    current = (long) LONGS.getAcquire(segment, slot); // Taken meanwhile
+                }
+                if (current == tag && (long) LONGS.getAcquire(segment, slot + 8) == candidate) {
+                    return;
+                }
+            }
+        }
+        if (!saturated) {
+            saturated = true;
+            System.err.println("Digest index is full; no longer recording swept ranges.");
+        }
+    }
+
+    /**
+     * Looks up every candidate stored under the digest and returns the first one that
+     * hashes to {@code targetHash}, or {@link DigestCache#ABSENT}.
+     */
+    long get(byte[] targetHash, long k0, long k1) {
+        long tag = tag(k0);
+        int partition = partition(k1);
+        ByteBuffer segment = segments[partition / partitionsPerSegment];
+        int base = (partition % partitionsPerSegment) * PARTITION_BYTES;
+        int bucket = (int) k1 & (PARTITION_BUCKETS - 1);
+
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int offset = base + ((bucket + probe) & (PARTITION_BUCKETS - 1)) * BUCKET_BYTES;
+            for (int slot = offset; slot < offset + BUCKET_BYTES; slot += SLOT_BYTES) {
+                long current = (long) LONGS.getAcquire(segment, slot);
+                if (current == 0) {
+                    return DigestCache.ABSENT;
+                }
+                if (current == tag) {
+                    long candidate = (long) LONGS.getAcquire(segment, slot + 8);
+                    if (Md5Kernel.matches(targetHash, Keyspaces.DECIMAL, candidate)) {
+                        return candidate;
+                    }
+                }
+            }
+        }
+        return DigestCache.ABSENT;
+    }
+
+    /**
+     * @return true if every candidate in [start, end] has been indexed and logged
+     */
+    boolean covers(long start, long end) {
+        Map.Entry<Long, Long> range = swept.floorEntry(start);
+        return range != null && range.getValue() >= end;
+    }
+
+    /**
+     * Records that every candidate in [start, end] has been stored. The range is logged by
+     * the next flush, once the table is on disk.
+     */
+    void markSwept(long start, long end) {
+        if (saturated || covers(start, end)) {
+            return;
+        }
+        synchronized (pending) {
+            pending.add(new long[]{start, end});
+        }
+    }
+
+    /**
+     * Forces the segments written since the last flush to disk, then logs the ranges swept
+     * meanwhile. Runs every FLUSH_MILLIS on its own thread.
+     */
+    synchronized void flush() {
+        List<long[]> ranges;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            ranges = new ArrayList<>(pending);
+            pending.clear();
+        }
+        try {
+            for (int i = 0; i < segments.length; i++) {
+                if (dirty.get(i) != 0) {
+                    dirty.set(i, 0);
+                    segments[i].force();
+                }
+            }
+            ByteBuffer record = ByteBuffer.allocate(16 * ranges.size());
+            for (long[] range : ranges) {
+                record.putLong(range[0]).putLong(range[1]);
+            }
+            record.flip();
+            long position = rangesChannel.size();
+            while (record.hasRemaining()) {
+                position += rangesChannel.write(record, position);
+            }
+            rangesChannel.force(false);
+            TreeMap<Long, Long> next = new TreeMap<>(swept);
+            for (long[] range : ranges) {
+                addSwept(next, range[0], range[1]);
+            }
+            swept = next;
+        } catch (IOException e) {
+            System.err.println("Could not record swept ranges: " + e.getMessage());
+        }
+    }
+
+    // Inserts [start, end] merging with overlapping or adjacent ranges
+    private static void addSwept(TreeMap<Long, Long> swept, long start, long end) {
+        Map.Entry<Long, Long> before = swept.floorEntry(start);
+        if (before != null && before.getValue() >= start - 1) {
+            start = before.getKey();
+            end = Math.max(end, before.getValue());
+        }
+        Map.Entry<Long, Long> next = swept.ceilingEntry(start);
+        while (next != null && next.getKey() <= end + 1) {
+            end = Math.max(end, next.getValue());
+            swept.remove(next.getKey());
+            next = swept.ceilingEntry(start);
+        }
+        swept.put(start, end);
+    }
+
+    private int partition(long k1) {
+        return (int) Long.remainderUnsigned(k1 >>> 10, partitions);
+    }
+
+    private static long tag(long k0) {
+        return k0 == 0 ? 1 : k0;
+    }
+}
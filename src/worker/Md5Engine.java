@@ -0,0 +1,50 @@
+package worker;
+
+import common.Keyspace;
+
+/**
+ * A hashing backend for the search loop: hashes {@link #lanes()} consecutive candidates of a
+ * {@link Keyspace} per {@link #hash()} call. Instances are not thread-safe: use one per search thread.
+ * Backends are created through {@link Md5Engines}.
+ */
+interface Md5Engine {
+
+    /**
+     * @return Backend name, as in -Dworker.backend
+     */
+    String name();
+
+    /**
+     * @return Number of consecutive candidates hashed by one {@link #hash()} call
+     */
+    int lanes();
+
+    /**
+     * Positions lane 0 on the candidate at the given (non-negative) index; lane i is on
+     * index + i. The keyspace applies until the next seek.
+     */
+    void seek(Keyspace keyspace, long index);
+
+    /**
+     * Hashes the current candidates; the digests are read with h0(lane)..h3(lane).
+     */
+    void hash();
+
+    /**
+     * Advances every lane by {@link #lanes()} candidates.
+     */
+    void next();
+
+    int h0(int lane);
+
+    int h1(int lane);
+
+    int h2(int lane);
+
+    int h3(int lane);
+
+    /**
+     * Returns a lane's current candidate as a String. Allocates; only call on a match.
+     */
+    String candidate(int lane);
+}
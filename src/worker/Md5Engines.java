@@ -0,0 +1,226 @@
+package worker;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import common.Keyspace;
+import common.Keyspaces;
+
+/**
+ * Picks the hashing backend configured with -Dworker.backend=auto|native|vector|scalar|messagedigest.
+ * The default, auto, times every backend that works on this machine for a moment and takes the
+ * fastest. The native and vector engines are loaded reflectively, so a JVM without their
+ * modules (or without the native library) still runs the Java kernels. Any backend other than
+ * the scalar one must first agree with {@link MessageDigest} around every decimal length
+ * boundary and every carry of a mask, or it is not used.
+ */
+final class Md5Engines {
+
+    private static final String BACKEND = System.getProperty("worker.backend", "auto");
+    // Backends timed by auto; scalar and messagedigest always load
+    private static final String[] BACKENDS = {"native", "vector", "scalar", "messagedigest"};
+    // Trials hash in windows of this long, until STEADY_WINDOWS in a row agree within STEADY...
+    private static final long WINDOW_MILLIS = 100;
+    private static final int STEADY_WINDOWS = 3;
+    private static final double STEADY = 0.05;
+    // ...or for this long at most
+    private static final long MAX_TRIAL_MILLIS = 2000;
+    // Ten-digit candidates, as in a typical problem
+    static final long TRIAL_START = 1_000_000_000L;
+    // Mask of the self-check: a literal, and carries inside and across message words
+    private static final Keyspace CHECK_MASK = Keyspaces.parse("mask:x?l?d?u?d");
+
+    private Md5Engines() {
+    }
+
+    /**
+     * The chosen backend: a factory for its engines, and its speed on one thread when auto timed it.
+     */
+    static final class Backend implements Supplier<Md5Engine> {
+        final String name;
+        // Hashes per second on one thread; 0 if not timed
+        final double hashesPerSecond;
+        private final Supplier<Md5Engine> engines;
+
+        Backend(String name, double hashesPerSecond, Supplier<Md5Engine> engines) {
+            this.name = name;
+            this.hashesPerSecond = hashesPerSecond;
+            this.engines = engines;
+        }
+
+        @Override
+        public Md5Engine get() {
+            return engines.get();
+        }
+    }
+
+    /**
+     * @return The configured backend, the fastest one with auto, or the scalar one
+     */
+    static Backend configured() {
+        if (!"auto".equals(BACKEND)) {
+            Supplier<Md5Engine> chosen = load(BACKEND);
+            if (chosen != null) {
+                System.out.println("Hashing backend: " + BACKEND + " (" + chosen.get().lanes() + " lanes)");
+                return new Backend(BACKEND, 0, chosen);
+            }
+            System.out.println("Hashing backend: scalar");
+            return new Backend("scalar", 0, ScalarMd5Engine::new);
+        }
+        Supplier<Md5Engine> best = ScalarMd5Engine::new;
+        String bestName = "scalar";
+        double bestRate = 0;
+        StringBuilder rates = new StringBuilder();
+        // Each backend is loaded right before its trial, so its JIT work does not slow another's
+        for (String name : BACKENDS) {
+            Supplier<Md5Engine> engines = load(name);
+            if (engines == null) {
+                continue;
+            }
+            double rate = measure(engines);
+            rates.append(rates.length() == 0 ? "" : ", ").append(String.format("%s %.2fM", name, rate / 1e6));
+            if (rate > bestRate) {
+                best = engines;
+                bestName = name;
+                bestRate = rate;
+            }
+        }
+        System.out.println("Hashing backend: " + bestName + " (fastest of " + rates + " hashes/s)");
+        return new Backend(bestName, bestRate, best);
+    }
+
+    // A factory for a backend's engines, or null (with the reason printed) if it cannot run here
+    private static Supplier<Md5Engine> load(String name) {
+        String type;
+        switch (name) {
+            case "scalar":
+                return ScalarMd5Engine::new;
+            case "messagedigest":
+                return MessageDigestMd5Engine::new;
+            case "vector":
+                type = "worker.VectorMd5Engine";
+                break;
+            case "native":
+                type = "worker.NativeMd5Engine";
+                break;
+            default:
+                System.err.println("Unknown backend '" + name + "'.");
+                return null;
+        }
+        try {
+            Class<? extends Md5Engine> engineType = Class.forName(type).asSubclass(Md5Engine.class);
+            Supplier<Md5Engine> engines = () -> {
+                try {
+                    return engineType.getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+            if (selfCheck(engines.get())) {
+                return engines;
+            }
+            System.err.println("The " + name + " MD5 engine failed its self-check.");
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            // A failed static initializer (e.g. no native access) only says why in its cause
+            Throwable reason = e instanceof ExceptionInInitializerError && e.getCause() != null ? e.getCause() : e;
+            System.out.println("The " + name + " backend is unavailable (" + reason + ").");
+        }
+        return null;
+    }
+
+    /**
+     * Times an engine on the calling thread once it runs at full speed: until {@link #STEADY_WINDOWS}
+     * windows in a row agree, with no JIT compilation finishing meanwhile. A fixed time would
+     * catch an engine on a C1 plateau, or the vector engine still interpreted (by far its
+     * slowest), on a small or busy machine.
+     * @return Hashes per second over the last windows
+     */
+    static double measure(Supplier<Md5Engine> engines) {
+        Md5Engine engine = engines.get();
+        engine.seek(Keyspaces.DECIMAL, TRIAL_START);
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        boolean watchJit = jit != null && jit.isCompilationTimeMonitoringSupported();
+        long deadline = System.nanoTime() + MAX_TRIAL_MILLIS * 1_000_000L;
+        double[] rates = new double[STEADY_WINDOWS];
+        long compiled = -1;
+        int steady = 0;
+        for (int window = 0; ; window++) {
+            long start = System.nanoTime();
+            double rate = hashFor(engine, WINDOW_MILLIS) * 1e9 / (System.nanoTime() - start);
+            long nowCompiled = watchJit ? jit.getTotalCompilationTime() : 0;
+            double previous = rates[(window + STEADY_WINDOWS - 1) % STEADY_WINDOWS];
+            steady = nowCompiled == compiled && Math.abs(rate - previous) <= STEADY * previous ? steady + 1 : 0;
+            rates[window % STEADY_WINDOWS] = rate;
+            compiled = nowCompiled;
+            if (steady == STEADY_WINDOWS - 1 || System.nanoTime() > deadline) {
+                return Arrays.stream(rates).average().orElse(0);
+            }
+        }
+    }
+
+    private static long hashFor(Md5Engine engine, long millis) {
+        long deadline = System.nanoTime() + millis * 1_000_000L;
+        long hashes = 0;
+        do {
+            engine.hash();
+            engine.next();
+            hashes += engine.lanes();
+        } while (System.nanoTime() < deadline);
+        return hashes;
+    }
+
+    /**
+     * Hashes two batches around 0 and around every power of ten (9 -> 10, 99 -> 100, ...),
+     * then around every carry of {@link #CHECK_MASK} and its wrap-around, starting at offsets
+     * that put the boundary in the first, middle and last lanes, and compares every lane with
+     * {@link MessageDigest}.
+     */
+    static boolean selfCheck(Md5Engine engine) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            return false;
+        }
+        int lanes = engine.lanes();
+        long power = 1;
+        for (int digits = 0; digits < 18; digits++, power *= 10) {
+            for (int offset : new int[]{0, 1, lanes / 2, lanes - 1}) {
+                if (!agrees(engine, md, Keyspaces.DECIMAL, Math.max(0, power - lanes - offset))) {
+                    return false;
+                }
+            }
+        }
+        for (long carry : new long[]{10, 10 * 26, 10 * 26 * 10, CHECK_MASK.size()}) {
+            for (int offset : new int[]{0, 1, lanes / 2, lanes - 1}) {
+                if (!agrees(engine, md, CHECK_MASK, Math.max(0, carry - lanes - offset))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Two batches from the index, against the keyspace's own candidates
+    private static boolean agrees(Md5Engine engine, MessageDigest md, Keyspace keyspace, long first) {
+        int lanes = engine.lanes();
+        engine.seek(keyspace, first);
+        for (int batch = 0; batch < 2; batch++, engine.next()) {
+            engine.hash();
+            for (int lane = 0; lane < lanes; lane++) {
+                String candidate = keyspace.candidate(first + (long) batch * lanes + lane);
+                int[] w = Md5Kernel.words(md.digest(candidate.getBytes(StandardCharsets.US_ASCII)));
+                if (engine.h0(lane) != w[0] || engine.h1(lane) != w[1] || engine.h2(lane) != w[2] || engine.h3(lane) != w[3]
+                        || !engine.candidate(lane).equals(candidate)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
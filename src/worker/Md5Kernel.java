@@ -0,0 +1,257 @@
+package worker;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import common.Keyspace;
+import common.Keyspaces;
+
+/**
+ * Allocation-free MD5 search kernel over a {@link Keyspace}.
+ * The current candidate is kept inside a single, already padded 64-byte MD5 block and is
+ * advanced in place by the keyspace, so hashing a candidate is one compression call and no
+ * objects are created in the search loop.
+ * Instances are not thread-safe: use one kernel per search thread.
+ */
+final class Md5Kernel {
+
+    // A single MD5 block: candidate, 0x80 terminator, zero padding, bit length in word 14
+    private final byte[] block = new byte[64];
+    private final int[] words = new int[16];
+    private int length;
+    private Keyspace keyspace = Keyspaces.DECIMAL;
+    private long index;
+
+    // Digest of the last hashed candidate
+    private int h0, h1, h2, h3;
+
+    /**
+     * Splits a 16-byte MD5 digest into the four little-endian words used by the kernel.
+     */
+    static int[] words(byte[] digest) {
+        int[] w = new int[4];
+        for (int i = 0; i < 4; i++) {
+            w[i] = (digest[4 * i] & 0xff)
+                    | (digest[4 * i + 1] & 0xff) << 8
+                    | (digest[4 * i + 2] & 0xff) << 16
+                    | (digest[4 * i + 3] & 0xff) << 24;
+        }
+        return w;
+    }
+
+    /**
+     * Checks a single candidate against a digest, e.g. to verify a cache hit.
+     */
+    static boolean matches(byte[] targetHash, Keyspace keyspace, long index) {
+        int[] target = words(targetHash);
+        Md5Kernel kernel = new Md5Kernel();
+        kernel.seek(keyspace, index);
+        kernel.hash();
+        return kernel.h0 == target[0] && kernel.h1 == target[1] && kernel.h2 == target[2] && kernel.h3 == target[3];
+    }
+
+    /**
+     * Positions the kernel on the candidate at the given (non-negative) index of a keyspace.
+     */
+    void seek(Keyspace keyspace, long index) {
+        this.keyspace = keyspace;
+        this.index = index;
+        Arrays.fill(block, (byte) 0);
+        Arrays.fill(words, 0);
+        setLength(keyspace.write(index, block));
+        packWords(0);
+    }
+
+    /**
+     * Advances to the next candidate in place.
+     */
+    void next() {
+        advance(1);
+    }
+
+    /**
+     * Advances by {@code n} (non-negative) candidates in place.
+     * @return The first message word that changed
+     */
+    int advance(int n) {
+        index += n;
+        int changed = keyspace.advance(block, length, n);
+        if (changed < 0) {
+            // The candidate got longer (99..9 -> 100..0): rewrite the block
+            seek(keyspace, index);
+            return 0;
+        }
+        int from = changed >> 2;
+        packWords(from);
+        return from;
+    }
+
+    private void setLength(int newLength) {
+        length = newLength;
+        block[length] = (byte) 0x80;
+        for (int i = length + 1; i < 56; i++) {
+            block[i] = 0;
+        }
+        words[14] = length << 3;
+    }
+
+    private void packWords(int from) {
+        int last = length >> 2;
+        for (int w = from; w <= last; w++) {
+            int j = w << 2;
+            words[w] = (block[j] & 0xff)
+                    | (block[j + 1] & 0xff) << 8
+                    | (block[j + 2] & 0xff) << 16
+                    | (block[j + 3] & 0xff) << 24;
+        }
+    }
+
+    /**
+     * Hashes the current candidate; the digest is read with h0()..h3().
+     */
+    void hash() {
+        compress();
+    }
+
+    /**
+     * @return Length of the current candidate
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * @return Word {@code i} (0-15) of the padded block of the current candidate
+     */
+    int word(int i) {
+        return words[i];
+    }
+
+    int h0() {
+        return h0;
+    }
+
+    int h1() {
+        return h1;
+    }
+
+    int h2() {
+        return h2;
+    }
+
+    int h3() {
+        return h3;
+    }
+
+    /**
+     * Copies the digest of the last hashed candidate into {@code out} (16 bytes).
+     */
+    void digest(byte[] out) {
+        putWord(out, 0, h0);
+        putWord(out, 4, h1);
+        putWord(out, 8, h2);
+        putWord(out, 12, h3);
+    }
+
+    private static void putWord(byte[] out, int off, int w) {
+        out[off] = (byte) w;
+        out[off + 1] = (byte) (w >>> 8);
+        out[off + 2] = (byte) (w >>> 16);
+        out[off + 3] = (byte) (w >>> 24);
+    }
+
+    /**
+     * Returns the current candidate as a String. Allocates; only call on a match.
+     */
+    String candidate() {
+        return new String(block, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    // Single-block MD5 compression (RFC 1321), fully unrolled. The round functions are
+    // written in equivalent forms that keep the newest register off the longest add chain.
+    private void compress() {
+        final int[] w = words;
+        final int x0 = w[0], x1 = w[1], x2 = w[2], x3 = w[3];
+        final int x4 = w[4], x5 = w[5], x6 = w[6], x7 = w[7];
+        final int x8 = w[8], x9 = w[9], x10 = w[10], x11 = w[11];
+        final int x12 = w[12], x13 = w[13], x14 = w[14], x15 = w[15];
+
+        int a = 0x67452301;
+        int b = 0xefcdab89;
+        int c = 0x98badcfe;
+        int d = 0x10325476;
+
+        a = b + Integer.rotateLeft(a + (x0 + 0xd76aa478) + (d ^ (b & (c ^ d))), 7);
+        d = a + Integer.rotateLeft(d + (x1 + 0xe8c7b756) + (c ^ (a & (b ^ c))), 12);
+        c = d + Integer.rotateLeft(c + (x2 + 0x242070db) + (b ^ (d & (a ^ b))), 17);
+        b = c + Integer.rotateLeft(b + (x3 + 0xc1bdceee) + (a ^ (c & (d ^ a))), 22);
+        a = b + Integer.rotateLeft(a + (x4 + 0xf57c0faf) + (d ^ (b & (c ^ d))), 7);
+        d = a + Integer.rotateLeft(d + (x5 + 0x4787c62a) + (c ^ (a & (b ^ c))), 12);
+        c = d + Integer.rotateLeft(c + (x6 + 0xa8304613) + (b ^ (d & (a ^ b))), 17);
+        b = c + Integer.rotateLeft(b + (x7 + 0xfd469501) + (a ^ (c & (d ^ a))), 22);
+        a = b + Integer.rotateLeft(a + (x8 + 0x698098d8) + (d ^ (b & (c ^ d))), 7);
+        d = a + Integer.rotateLeft(d + (x9 + 0x8b44f7af) + (c ^ (a & (b ^ c))), 12);
+        c = d + Integer.rotateLeft(c + (x10 + 0xffff5bb1) + (b ^ (d & (a ^ b))), 17);
+        b = c + Integer.rotateLeft(b + (x11 + 0x895cd7be) + (a ^ (c & (d ^ a))), 22);
+        a = b + Integer.rotateLeft(a + (x12 + 0x6b901122) + (d ^ (b & (c ^ d))), 7);
+        d = a + Integer.rotateLeft(d + (x13 + 0xfd987193) + (c ^ (a & (b ^ c))), 12);
+        c = d + Integer.rotateLeft(c + (x14 + 0xa679438e) + (b ^ (d & (a ^ b))), 17);
+        b = c + Integer.rotateLeft(b + (x15 + 0x49b40821) + (a ^ (c & (d ^ a))), 22);
+
+        a = b + Integer.rotateLeft(a + (x1 + 0xf61e2562) + (c & ~d) + (b & d), 5);
+        d = a + Integer.rotateLeft(d + (x6 + 0xc040b340) + (b & ~c) + (a & c), 9);
+        c = d + Integer.rotateLeft(c + (x11 + 0x265e5a51) + (a & ~b) + (d & b), 14);
+        b = c + Integer.rotateLeft(b + (x0 + 0xe9b6c7aa) + (d & ~a) + (c & a), 20);
+        a = b + Integer.rotateLeft(a + (x5 + 0xd62f105d) + (c & ~d) + (b & d), 5);
+        d = a + Integer.rotateLeft(d + (x10 + 0x02441453) + (b & ~c) + (a & c), 9);
+        c = d + Integer.rotateLeft(c + (x15 + 0xd8a1e681) + (a & ~b) + (d & b), 14);
+        b = c + Integer.rotateLeft(b + (x4 + 0xe7d3fbc8) + (d & ~a) + (c & a), 20);
+        a = b + Integer.rotateLeft(a + (x9 + 0x21e1cde6) + (c & ~d) + (b & d), 5);
+        d = a + Integer.rotateLeft(d + (x14 + 0xc33707d6) + (b & ~c) + (a & c), 9);
+        c = d + Integer.rotateLeft(c + (x3 + 0xf4d50d87) + (a & ~b) + (d & b), 14);
+        b = c + Integer.rotateLeft(b + (x8 + 0x455a14ed) + (d & ~a) + (c & a), 20);
+        a = b + Integer.rotateLeft(a + (x13 + 0xa9e3e905) + (c & ~d) + (b & d), 5);
+        d = a + Integer.rotateLeft(d + (x2 + 0xfcefa3f8) + (b & ~c) + (a & c), 9);
+        c = d + Integer.rotateLeft(c + (x7 + 0x676f02d9) + (a & ~b) + (d & b), 14);
+        b = c + Integer.rotateLeft(b + (x12 + 0x8d2a4c8a) + (d & ~a) + (c & a), 20);
+
+        a = b + Integer.rotateLeft(a + (x5 + 0xfffa3942) + (b ^ c ^ d), 4);
+        d = a + Integer.rotateLeft(d + (x8 + 0x8771f681) + (a ^ b ^ c), 11);
+        c = d + Integer.rotateLeft(c + (x11 + 0x6d9d6122) + (d ^ a ^ b), 16);
+        b = c + Integer.rotateLeft(b + (x14 + 0xfde5380c) + (c ^ d ^ a), 23);
+        a = b + Integer.rotateLeft(a + (x1 + 0xa4beea44) + (b ^ c ^ d), 4);
+        d = a + Integer.rotateLeft(d + (x4 + 0x4bdecfa9) + (a ^ b ^ c), 11);
+        c = d + Integer.rotateLeft(c + (x7 + 0xf6bb4b60) + (d ^ a ^ b), 16);
+        b = c + Integer.rotateLeft(b + (x10 + 0xbebfbc70) + (c ^ d ^ a), 23);
+        a = b + Integer.rotateLeft(a + (x13 + 0x289b7ec6) + (b ^ c ^ d), 4);
+        d = a + Integer.rotateLeft(d + (x0 + 0xeaa127fa) + (a ^ b ^ c), 11);
+        c = d + Integer.rotateLeft(c + (x3 + 0xd4ef3085) + (d ^ a ^ b), 16);
+        b = c + Integer.rotateLeft(b + (x6 + 0x04881d05) + (c ^ d ^ a), 23);
+        a = b + Integer.rotateLeft(a + (x9 + 0xd9d4d039) + (b ^ c ^ d), 4);
+        d = a + Integer.rotateLeft(d + (x12 + 0xe6db99e5) + (a ^ b ^ c), 11);
+        c = d + Integer.rotateLeft(c + (x15 + 0x1fa27cf8) + (d ^ a ^ b), 16);
+        b = c + Integer.rotateLeft(b + (x2 + 0xc4ac5665) + (c ^ d ^ a), 23);
+
+        a = b + Integer.rotateLeft(a + (x0 + 0xf4292244) + (c ^ (b | ~d)), 6);
+        d = a + Integer.rotateLeft(d + (x7 + 0x432aff97) + (b ^ (a | ~c)), 10);
+        c = d + Integer.rotateLeft(c + (x14 + 0xab9423a7) + (a ^ (d | ~b)), 15);
+        b = c + Integer.rotateLeft(b + (x5 + 0xfc93a039) + (d ^ (c | ~a)), 21);
+        a = b + Integer.rotateLeft(a + (x12 + 0x655b59c3) + (c ^ (b | ~d)), 6);
+        d = a + Integer.rotateLeft(d + (x3 + 0x8f0ccc92) + (b ^ (a | ~c)), 10);
+        c = d + Integer.rotateLeft(c + (x10 + 0xffeff47d) + (a ^ (d | ~b)), 15);
+        b = c + Integer.rotateLeft(b + (x1 + 0x85845dd1) + (d ^ (c | ~a)), 21);
+        a = b + Integer.rotateLeft(a + (x8 + 0x6fa87e4f) + (c ^ (b | ~d)), 6);
+        d = a + Integer.rotateLeft(d + (x15 + 0xfe2ce6e0) + (b ^ (a | ~c)), 10);
+        c = d + Integer.rotateLeft(c + (x6 + 0xa3014314) + (a ^ (d | ~b)), 15);
+        b = c + Integer.rotateLeft(b + (x13 + 0x4e0811a1) + (d ^ (c | ~a)), 21);
+        a = b + Integer.rotateLeft(a + (x4 + 0xf7537e82) + (c ^ (b | ~d)), 6);
+        d = a + Integer.rotateLeft(d + (x11 + 0xbd3af235) + (b ^ (a | ~c)), 10);
+        c = d + Integer.rotateLeft(c + (x2 + 0x2ad7d2bb) + (a ^ (d | ~b)), 15);
+        b = c + Integer.rotateLeft(b + (x9 + 0xeb86d391) + (d ^ (c | ~a)), 21);
+
+        h0 = a + 0x67452301;
+        h1 = b + 0xefcdab89;
+        h2 = c + 0x98badcfe;
+        h3 = d + 0x10325476;
+    }
+}
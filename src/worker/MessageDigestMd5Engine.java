@@ -0,0 +1,90 @@
+package worker;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import common.Keyspace;
+
+/**
+ * One candidate at a time through the JDK's {@link MessageDigest}: the reference the other
+ * backends are checked against, and a baseline when picking the fastest one.
+ */
+final class MessageDigestMd5Engine implements Md5Engine {
+
+    private final MessageDigest md;
+    private final byte[] digest = new byte[16];
+    private final byte[] candidate = new byte[Keyspace.MAX_LENGTH];
+    private Keyspace keyspace;
+    private long index;
+    private int h0, h1, h2, h3;
+
+    MessageDigestMd5Engine() {
+        try {
+            md = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "messagedigest";
+    }
+
+    @Override
+    public int lanes() {
+        return 1;
+    }
+
+    @Override
+    public void seek(Keyspace keyspace, long index) {
+        this.keyspace = keyspace;
+        this.index = index;
+    }
+
+    @Override
+    public void hash() {
+        md.update(candidate, 0, keyspace.write(index, candidate));
+        try {
+            md.digest(digest, 0, digest.length);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+        int[] w = Md5Kernel.words(digest);
+        h0 = w[0];
+        h1 = w[1];
+        h2 = w[2];
+        h3 = w[3];
+    }
+
+    @Override
+    public void next() {
+        index++;
+    }
+
+    @Override
+    public int h0(int lane) {
+        return h0;
+    }
+
+    @Override
+    public int h1(int lane) {
+        return h1;
+    }
+
+    @Override
+    public int h2(int lane) {
+        return h2;
+    }
+
+    @Override
+    public int h3(int lane) {
+        return h3;
+    }
+
+    @Override
+    public String candidate(int lane) {
+        return keyspace.candidate(index);
+    }
+}
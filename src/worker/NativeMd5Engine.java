@@ -0,0 +1,133 @@
+package worker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.nio.file.Paths;
+
+import common.Keyspace;
+import jdk.incubator.foreign.CLinker;
+import jdk.incubator.foreign.FunctionDescriptor;
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemoryAddress;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+import jdk.incubator.foreign.SymbolLookup;
+
+/**
+ * MD5 in native code (native/md5batch.c), called through the Foreign Function & Memory API:
+ * one downcall hashes a batch of {@link #BATCH} consecutive candidates into an off-heap
+ * buffer of digests. The C kernel is compiled with -march=native, so it runs on whatever SIMD
+ * the machine has (AVX2 / AVX-512, NEON on the Pis). It enumerates decimal keyspaces itself,
+ * and masks from their character sets, copied off-heap once per engine.
+ *
+ * Needs the library (native/build.sh; path: -Dworker.nativeLib) and the jdk.incubator.foreign
+ * module with native access (--add-modules jdk.incubator.foreign --enable-native-access=ALL-UNNAMED);
+ * without them this class fails to load and {@link Md5Engines} uses a Java backend.
+ */
+final class NativeMd5Engine implements Md5Engine {
+
+    // Candidates per downcall; large enough to amortize the call, small enough to stay in L1
+    private static final int BATCH = 256;
+    private static final String LIBRARY = System.getProperty("worker.nativeLib", "native/libmd5batch.so");
+    private static final MethodHandle MD5_BATCH;
+    private static final MethodHandle MD5_BATCH_MASK;
+    // Bytes per position in the off-heap character sets, as SET_STRIDE in md5batch.c
+    private static final int SET_STRIDE = 128;
+
+    static {
+        System.load(Paths.get(LIBRARY).toAbsolutePath().toString());
+        MemoryAddress symbol = SymbolLookup.loaderLookup().lookup("md5_batch")
+                .orElseThrow(() -> new UnsatisfiedLinkError("md5_batch not found in " + LIBRARY));
+        MD5_BATCH = CLinker.getInstance().downcallHandle(symbol,
+                MethodType.methodType(void.class, long.class, int.class, MemoryAddress.class),
+                FunctionDescriptor.ofVoid(CLinker.C_LONG_LONG, CLinker.C_INT, CLinker.C_POINTER));
+        MemoryAddress maskSymbol = SymbolLookup.loaderLookup().lookup("md5_batch_mask")
+                .orElseThrow(() -> new UnsatisfiedLinkError("md5_batch_mask not found in " + LIBRARY + "; rebuild it"));
+        MD5_BATCH_MASK = CLinker.getInstance().downcallHandle(maskSymbol,
+                MethodType.methodType(void.class, long.class, int.class, MemoryAddress.class, int.class, MemoryAddress.class, MemoryAddress.class),
+                FunctionDescriptor.ofVoid(CLinker.C_LONG_LONG, CLinker.C_INT, CLinker.C_POINTER, CLinker.C_INT, CLinker.C_POINTER, CLinker.C_POINTER));
+    }
+
+    // Digest words of the batch: candidate i at ints 4i .. 4i + 3. Freed with the engine.
+    private final MemorySegment digests = MemorySegment.allocateNative(4L * BATCH * Integer.BYTES, ResourceScope.newImplicitScope());
+    private final MemoryAddress address = digests.address();
+    private Keyspace keyspace;
+    private long first;
+    // The mask of the keyspace, off-heap: set size per position, and the sets SET_STRIDE apart
+    private Keyspace maskOf;
+    private int maskLength;
+    private MemorySegment sizes;
+    private MemorySegment sets;
+
+    @Override
+    public String name() {
+        return "native";
+    }
+
+    @Override
+    public int lanes() {
+        return BATCH;
+    }
+
+    @Override
+    public void seek(Keyspace keyspace, long index) {
+        this.keyspace = keyspace;
+        first = index;
+        // Called once per leaf: only a new mask is copied off-heap
+        if (keyspace != maskOf && keyspace.charsetCount() > 0) {
+            maskOf = keyspace;
+            maskLength = keyspace.charsetCount();
+            sizes = MemorySegment.allocateNative((long) maskLength * Integer.BYTES, ResourceScope.newImplicitScope());
+            sets = MemorySegment.allocateNative((long) maskLength * SET_STRIDE, ResourceScope.newImplicitScope());
+            byte[] set = new byte[256];
+            for (int p = 0; p < maskLength; p++) {
+                int size = keyspace.charset(p, set);
+                MemoryAccess.setIntAtIndex(sizes, p, size);
+                sets.asSlice((long) p * SET_STRIDE, size).copyFrom(MemorySegment.ofArray(set).asSlice(0, size));
+            }
+        }
+    }
+
+    @Override
+    public void hash() {
+        try {
+            if (keyspace == maskOf) {
+                MD5_BATCH_MASK.invokeExact(first, BATCH, address, maskLength, sizes.address(), sets.address());
+            } else {
+                MD5_BATCH.invokeExact(first, BATCH, address);
+            }
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void next() {
+        first += BATCH;
+    }
+
+    @Override
+    public int h0(int lane) {
+        return MemoryAccess.getIntAtIndex(digests, 4L * lane);
+    }
+
+    @Override
+    public int h1(int lane) {
+        return MemoryAccess.getIntAtIndex(digests, 4L * lane + 1);
+    }
+
+    @Override
+    public int h2(int lane) {
+        return MemoryAccess.getIntAtIndex(digests, 4L * lane + 2);
+    }
+
+    @Override
+    public int h3(int lane) {
+        return MemoryAccess.getIntAtIndex(digests, 4L * lane + 3);
+    }
+
+    @Override
+    public String candidate(int lane) {
+        return keyspace.candidate(first + lane);
+    }
+}
@@ -0,0 +1,41 @@
+package worker;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tracks which parts of an assigned range are done while sub-ranges finish out of order,
+ * and derives the checkpoint: the highest value below which everything has been checked.
+ */
+final class RangeProgress {
+
+    final long taskId;
+    final long start;
+    final long end;
+    private long checkpoint;
+    // Finished sub-ranges above the checkpoint: start -> end
+    private final TreeMap<Long, Long> done = new TreeMap<>();
+
+    RangeProgress(long taskId, long start, long end) {
+        this.taskId = taskId;
+        this.start = start;
+        this.end = end;
+        this.checkpoint = start - 1;
+    }
+
+    synchronized void done(long subStart, long subEnd) {
+        done.put(subStart, subEnd);
+        Map.Entry<Long, Long> next;
+        while ((next = done.firstEntry()) != null && next.getKey() <= checkpoint + 1) {
+            checkpoint = Math.max(checkpoint, next.getValue());
+            done.pollFirstEntry();
+        }
+    }
+
+    /**
+     * @return The highest value such that [start, value] is fully checked, or start - 1
+     */
+    synchronized long checkpoint() {
+        return checkpoint;
+    }
+}
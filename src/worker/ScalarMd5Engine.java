@@ -0,0 +1,61 @@
+package worker;
+
+import common.Keyspace;
+
+/**
+ * One candidate at a time on the scalar {@link Md5Kernel}. Always available.
+ */
+final class ScalarMd5Engine implements Md5Engine {
+
+    private final Md5Kernel kernel = new Md5Kernel();
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public int lanes() {
+        return 1;
+    }
+
+    @Override
+    public void seek(Keyspace keyspace, long index) {
+        kernel.seek(keyspace, index);
+    }
+
+    @Override
+    public void hash() {
+        kernel.hash();
+    }
+
+    @Override
+    public void next() {
+        kernel.next();
+    }
+
+    @Override
+    public int h0(int lane) {
+        return kernel.h0();
+    }
+
+    @Override
+    public int h1(int lane) {
+        return kernel.h1();
+    }
+
+    @Override
+    public int h2(int lane) {
+        return kernel.h2();
+    }
+
+    @Override
+    public int h3(int lane) {
+        return kernel.h3();
+    }
+
+    @Override
+    public String candidate(int lane) {
+        return kernel.candidate();
+    }
+}
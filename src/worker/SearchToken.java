@@ -0,0 +1,60 @@
+package worker;
+
+import common.Keyspace;
+
+/**
+ * One queued or running task: its keyspace, its targets, its progress, its own cancellation
+ * flag and its current end, which the master may pull in to hand the rest to another worker. Every task
+ * gets a new token, so cancelling one can never stop another. Search threads poll the token
+ * every few thousand candidates, and nothing is reported to the master for a task once its
+ * token is cancelled.
+ */
+final class SearchToken {
+
+    final Keyspace keyspace;
+    final TargetSet targets;
+    final RangeProgress progress;
+    private volatile boolean cancelled;
+    private volatile long cancelledAt;
+    private volatile long end;
+
+    SearchToken(long taskId, Keyspace keyspace, long start, long end, TargetSet targets) {
+        this.keyspace = keyspace;
+        this.targets = targets;
+        this.progress = new RangeProgress(taskId, start, end);
+        this.end = end;
+    }
+
+    long taskId() {
+        return progress.taskId;
+    }
+
+    /**
+     * @return The last number to search: the task's end, or less once truncated
+     */
+    long end() {
+        return end;
+    }
+
+    synchronized void truncate(long end) {
+        this.end = Math.min(this.end, end);
+    }
+
+    void cancel() {
+        if (!cancelled) {
+            cancelledAt = System.nanoTime();
+            cancelled = true;
+        }
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return {@link System#nanoTime} of the first {@link #cancel}
+     */
+    long cancelledAt() {
+        return cancelledAt;
+    }
+}
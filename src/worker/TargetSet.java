@@ -0,0 +1,112 @@
+package worker;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * The target digests of the jobs a task carries, checked together in one sweep.
+ * Digests are held as the two {@link DigestCache#key} halves and sorted by the first (a
+ * 64-bit prefix of the digest). A lookup first tests a bitmap filter indexed by high bits of
+ * the second half, which rejects almost every candidate with one load; survivors are located
+ * with a branchless binary search on the prefix and confirmed on all 128 bits. The cost per
+ * candidate therefore stays nearly flat from one target to hundreds of thousands.
+ *
+ * Targets are indexed in sorted order; {@link #jobIds} and {@link #hashes} follow that order.
+ * Two jobs may share a target, so a digest can match several consecutive indices.
+ */
+final class TargetSet {
+
+    // Filter bits per target, as a power of two: about 1 in 16 misses reaches the search
+    private static final int FILTER_SHIFT = 4;
+    private static final int MAX_FILTER_BITS = 30;
+
+    final long[] jobIds;
+    final byte[][] hashes;
+    private final long[] k0;
+    private final long[] k1;
+    private final long[] filter;
+    private final int filterShift;
+
+    TargetSet(long[] jobIds, byte[][] hashes) {
+        int n = hashes.length;
+        long[] keys0 = new long[n];
+        long[] keys1 = new long[n];
+        for (int i = 0; i < n; i++) {
+            int[] w = Md5Kernel.words(hashes[i]);
+            keys0[i] = DigestCache.key(w[0], w[1]);
+            keys1[i] = DigestCache.key(w[2], w[3]);
+        }
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> keys0[i]));
+
+        this.jobIds = new long[n];
+        this.hashes = new byte[n][];
+        k0 = new long[n];
+        k1 = new long[n];
+        for (int i = 0; i < n; i++) {
+            this.jobIds[i] = jobIds[order[i]];
+            this.hashes[i] = hashes[order[i]];
+            k0[i] = keys0[order[i]];
+            k1[i] = keys1[order[i]];
+        }
+
+        int bits = Math.max(6, Math.min(MAX_FILTER_BITS, 64 - Long.numberOfLeadingZeros(Math.max(1, n - 1)) + FILTER_SHIFT));
+        filter = new long[1 << (bits - 6)];
+        filterShift = 64 - bits;
+        for (long key : k1) {
+            int bit = (int) (key >>> filterShift);
+            filter[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    int size() {
+        return jobIds.length;
+    }
+
+    long k0(int i) {
+        return k0[i];
+    }
+
+    long k1(int i) {
+        return k1[i];
+    }
+
+    /**
+     * @return The first index of a target equal to the digest, or -1
+     */
+    int indexOf(long d0, long d1) {
+        int bit = (int) (d1 >>> filterShift);
+        if ((filter[bit >>> 6] & (1L << bit)) == 0) {
+            return -1;
+        }
+        long[] keys = k0;
+        // Lower bound on the prefix; the conditional compiles to a move, not a branch
+        int base = 0;
+        int n = keys.length;
+        while (n > 1) {
+            int half = n >>> 1;
+            base = keys[base + half - 1] < d0 ? base + half : base;
+            n -= half;
+        }
+        return nextFrom(base, d0, d1);
+    }
+
+    /**
+     * @return The next index after {@code i} of a target equal to the digest, or -1
+     */
+    int nextIndexOf(int i, long d0, long d1) {
+        return nextFrom(i + 1, d0, d1);
+    }
+
+    private int nextFrom(int i, long d0, long d1) {
+        for (; i < k0.length && k0[i] == d0; i++) {
+            if (k1[i] == d1) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
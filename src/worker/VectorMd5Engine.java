@@ -0,0 +1,173 @@
+package worker;
+
+import common.Keyspace;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Multi-lane MD5 on the Vector API: one compression runs on a vector of consecutive
+ * candidates, one candidate per lane (8 lanes with AVX2, 16 with AVX-512).
+ * Each lane keeps its own padded block in a scalar {@link Md5Kernel}, so lanes may differ in
+ * length (e.g. 99 -> 100 in the same batch). Message words are kept in columns (word w of
+ * every lane side by side) and only the words whose characters changed are copied per step.
+ *
+ * Needs the jdk.incubator.vector module (--add-modules jdk.incubator.vector); without it this
+ * class fails to load and {@link Md5Engines} falls back to the scalar kernel.
+ */
+final class VectorMd5Engine implements Md5Engine {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    private final int lanes = SPECIES.length();
+    // Per-lane candidate, used as a counter and to build the padded block
+    private final Md5Kernel[] counters = new Md5Kernel[lanes];
+    // Message word w of every lane
+    private final int[][] columns = new int[16][lanes];
+    private final int[] h0 = new int[lanes];
+    private final int[] h1 = new int[lanes];
+    private final int[] h2 = new int[lanes];
+    private final int[] h3 = new int[lanes];
+
+    VectorMd5Engine() {
+        for (int i = 0; i < lanes; i++) {
+            counters[i] = new Md5Kernel();
+        }
+    }
+
+    @Override
+    public String name() {
+        return "vector";
+    }
+
+    @Override
+    public int lanes() {
+        return lanes;
+    }
+
+    @Override
+    public void seek(Keyspace keyspace, long index) {
+        for (int i = 0; i < lanes; i++) {
+            counters[i].seek(keyspace, index + i);
+            copyWords(i, 0);
+        }
+    }
+
+    @Override
+    public void next() {
+        for (int i = 0; i < lanes; i++) {
+            copyWords(i, counters[i].advance(lanes));
+        }
+    }
+
+    // Copies a lane's changed message words into the columns. Starting from word 0 may mean
+    // the length changed, which also rewrites the padding and the bit length.
+    private void copyWords(int lane, int from) {
+        Md5Kernel counter = counters[lane];
+        int last = from == 0 ? 15 : counter.length() >> 2;
+        for (int w = from; w <= last; w++) {
+            columns[w][lane] = counter.word(w);
+        }
+    }
+
+    @Override
+    public void hash() {
+        compress();
+    }
+
+    @Override
+    public int h0(int lane) {
+        return h0[lane];
+    }
+
+    @Override
+    public int h1(int lane) {
+        return h1[lane];
+    }
+
+    @Override
+    public int h2(int lane) {
+        return h2[lane];
+    }
+
+    @Override
+    public int h3(int lane) {
+        return h3[lane];
+    }
+
+    @Override
+    public String candidate(int lane) {
+        return counters[lane].candidate();
+    }
+
+    // Per step: additive constant and message word, in the order of Md5Kernel.compress
+    private static final int[] K = {
+            0xd76aa478, 0xe8c7b756, 0x242070db, 0xc1bdceee, 0xf57c0faf, 0x4787c62a, 0xa8304613, 0xfd469501,
+            0x698098d8, 0x8b44f7af, 0xffff5bb1, 0x895cd7be, 0x6b901122, 0xfd987193, 0xa679438e, 0x49b40821,
+            0xf61e2562, 0xc040b340, 0x265e5a51, 0xe9b6c7aa, 0xd62f105d, 0x02441453, 0xd8a1e681, 0xe7d3fbc8,
+            0x21e1cde6, 0xc33707d6, 0xf4d50d87, 0x455a14ed, 0xa9e3e905, 0xfcefa3f8, 0x676f02d9, 0x8d2a4c8a,
+            0xfffa3942, 0x8771f681, 0x6d9d6122, 0xfde5380c, 0xa4beea44, 0x4bdecfa9, 0xf6bb4b60, 0xbebfbc70,
+            0x289b7ec6, 0xeaa127fa, 0xd4ef3085, 0x04881d05, 0xd9d4d039, 0xe6db99e5, 0x1fa27cf8, 0xc4ac5665,
+            0xf4292244, 0x432aff97, 0xab9423a7, 0xfc93a039, 0x655b59c3, 0x8f0ccc92, 0xffeff47d, 0x85845dd1,
+            0x6fa87e4f, 0xfe2ce6e0, 0xa3014314, 0x4e0811a1, 0xf7537e82, 0xbd3af235, 0x2ad7d2bb, 0xeb86d391
+    };
+    private static final int[] X = {
+            0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15,
+            1, 6, 11, 0, 5, 10, 15, 4, 9, 14, 3, 8, 13, 2, 7, 12,
+            5, 8, 11, 14, 1, 4, 7, 10, 13, 0, 3, 6, 9, 12, 15, 2,
+            0, 7, 14, 5, 12, 3, 10, 1, 8, 15, 6, 13, 4, 11, 2, 9
+    };
+    // Rotation per step, four per round
+    private static final int[] S = {7, 12, 17, 22, 5, 9, 14, 20, 4, 11, 16, 23, 6, 10, 15, 21};
+
+    // The rounds of Md5Kernel.compress, lane-wise. Written as loops that rotate the state
+    // rather than unrolled: the unrolled form is too large for the JIT to keep the vectors
+    // in registers, and the loaded message words stay in L1 anyway.
+    private void compress() {
+        final int[][] m = columns;
+        IntVector a = IntVector.broadcast(SPECIES, 0x67452301);
+        IntVector b = IntVector.broadcast(SPECIES, 0xefcdab89);
+        IntVector c = IntVector.broadcast(SPECIES, 0x98badcfe);
+        IntVector d = IntVector.broadcast(SPECIES, 0x10325476);
+        for (int i = 0; i < 16; i++) {
+            IntVector f = d.lanewise(VectorOperators.XOR, b.and(c.lanewise(VectorOperators.XOR, d)));
+            IntVector t = d;
+            d = c;
+            c = b;
+            b = b.add(a.add(load(m[X[i]]).add(K[i])).add(f).lanewise(VectorOperators.ROL, S[i & 3]));
+            a = t;
+        }
+        for (int i = 16; i < 32; i++) {
+            IntVector f = c.lanewise(VectorOperators.AND_NOT, d).add(b.and(d));
+            IntVector t = d;
+            d = c;
+            c = b;
+            b = b.add(a.add(load(m[X[i]]).add(K[i])).add(f).lanewise(VectorOperators.ROL, S[4 + (i & 3)]));
+            a = t;
+        }
+        for (int i = 32; i < 48; i++) {
+            IntVector f = b.lanewise(VectorOperators.XOR, c).lanewise(VectorOperators.XOR, d);
+            IntVector t = d;
+            d = c;
+            c = b;
+            b = b.add(a.add(load(m[X[i]]).add(K[i])).add(f).lanewise(VectorOperators.ROL, S[8 + (i & 3)]));
+            a = t;
+        }
+        for (int i = 48; i < 64; i++) {
+            IntVector f = c.lanewise(VectorOperators.XOR, b.or(d.not()));
+            IntVector t = d;
+            d = c;
+            c = b;
+            b = b.add(a.add(load(m[X[i]]).add(K[i])).add(f).lanewise(VectorOperators.ROL, S[12 + (i & 3)]));
+            a = t;
+        }
+        a.add(0x67452301).intoArray(h0, 0);
+        b.add(0xefcdab89).intoArray(h1, 0);
+        c.add(0x98badcfe).intoArray(h2, 0);
+        d.add(0x10325476).intoArray(h3, 0);
+    }
+
+    private static IntVector load(int[] column) {
+        return IntVector.fromArray(SPECIES, column, 0);
+    }
+}
@@ -1,41 +1,121 @@
 package worker;
 
+import java.nio.charset.StandardCharsets;
 import java.rmi.Naming;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
 import java.security.MessageDigest;
-import java.math.BigInteger;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
+import common.Keyspace;
+import common.Keyspaces;
 import common.MasterRepInterface;
+import common.Metrics;
+import common.SearchTask;
 import common.WorkerCommInterface;
-import java.util.Collections;
-import java.util.LinkedHashMap;
-import java.util.Map;
 
 public class WorkerNode extends UnicastRemoteObject implements WorkerCommInterface {
 
     private MasterRepInterface master;
     private static String masterHost = "localhost";
-    private static final int MASTER_PORT = 1099;
+    // Registry port of the master, or of a sub-master (-Dworker.masterPort)
+    private static final int MASTER_PORT = Integer.getInteger("worker.masterPort", 1099);
     private static final String MASTER_SERVICE = "Master";
-    // Thread tracking
-    private Thread workerThread;
-    
-    // Cache: LRU Cache with max 100,000 entries
-    private static final int MAX_CACHE_SIZE = 100000;
-    private Map<String, String> hashCache = Collections.synchronizedMap(
-        new LinkedHashMap<String, String>(MAX_CACHE_SIZE + 1, 0.75f, true) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
-                return size() > MAX_CACHE_SIZE;
-            }
-        }
-    );
+    // Transport to the master (-Dworker.transport=rmi|binary); the binary one connects to
+    // -Dworker.binaryPort (default 1100), which the master opens with -Dclient.binaryPort
+    private static final String TRANSPORT = System.getProperty("worker.transport", "rmi");
+    private static final int BINARY_PORT = Integer.getInteger("worker.binaryPort", 1100);
+    private static final long BINARY_TIMEOUT_MILLIS = 10_000;
+    // Long-lived search pool (-Dworker.threads, default: one per core). Threads and JIT
+    // state carry over between problems; idle threads steal sub-ranges from busy ones.
+    private static final int THREADS = Integer.getInteger("worker.threads", Runtime.getRuntime().availableProcessors());
+    private final ForkJoinPool pool = new ForkJoinPool(THREADS);
+    // Runs one range at a time and reports completion, so RMI calls never block a search thread
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor();
+    // Tasks queued or running, by id; tokens are added, cancelled and swapped in under searchLock
+    private final Object searchLock = new Object();
+    private final Map<Long, SearchToken> tokens = new ConcurrentHashMap<>();
+    // The running task, or null between tasks
+    private volatile SearchToken current;
+    // Candidates between two looks at the running task's token (-Dworker.cancelCheck): bounds
+    // how long a cancelled search keeps its threads, without a volatile read per batch
+    private static final long CANCEL_CHECK = Long.getLong("worker.cancelCheck", 1 << 14);
+
+    // Sub-range sizes: always split above MAX_GRAIN, split below it only while threads are idle
+    private static final long MIN_GRAIN = 1 << 14;
+    private static final long MAX_GRAIN = 1 << 20;
+
+    // Before registering, the search path runs on every search thread for this long
+    // (-Dworker.warmupMillis, 0: off), so the first chunk starts at full speed; the second
+    // half is timed for the capacity the worker registers with
+    private static final long WARMUP_MILLIS = Long.getLong("worker.warmupMillis", 2000);
+    // Warm up and exit without connecting (-Dworker.warmupOnly=true), e.g. to record a
+    // class-data-sharing archive of everything a search loads (start_worker.sh)
+    private static final boolean WARMUP_ONLY = Boolean.getBoolean("worker.warmupOnly");
+    // Task and job id of the warm-up searches: never reported, and kept out of the digest index
+    private static final long WARMUP_TASK = -1;
+    // Hashes per second of the whole worker, timed by the warm-up; 0 if it did not run
+    private double measuredRate;
+    // The warm-up's own hash cache and count, so that it leaves the real cache, the hash
+    // metrics and any task racing it alone; the cache is dropped once warmed up
+    private static final long WARMUP_CACHE_BYTES = 1 << 20;
+    private volatile DigestCache warmUpCache;
+    private final LongAdder warmUpHashes = new LongAdder();
+
+    // Checkpoint of the current range, reported every PROGRESS_MILLIS (-Dworker.progressMillis).
+    // The reports double as the heartbeat that keeps this worker's lease on the range.
+    private static final long PROGRESS_MILLIS = Long.getLong("worker.progressMillis", 1000);
+    private final ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
 
-    private volatile boolean running = false;
+    // Cache: digest -> candidate rainbow table, sized in bytes (-Dworker.cacheBytes, default 64 MiB)
+    private static final long CACHE_BYTES = Long.getLong("worker.cacheBytes", 64L << 20);
+    private final DigestCache hashCache = new DigestCache(CACHE_BYTES);
+    // Optional persistent index of fully swept ranges (-Dworker.index=<dir>), survives restarts.
+    // It numbers candidates as the decimal keyspaces do; tasks over other keyspaces bypass it.
+    private final DigestIndex digestIndex = DigestIndex.openConfigured();
+    // Keyspaces of the tasks seen so far, by spec
+    private final Map<String, Keyspace> keyspaces = new ConcurrentHashMap<>();
+    // Hashing backend (-Dworker.backend, see Md5Engines); one engine per searched sub-range
+    private final Supplier<Md5Engine> engines;
+
+    // Jobs solved here or cancelled by the master: their targets are no longer checked
+    private final Set<Long> closedJobs = ConcurrentHashMap.newKeySet();
+    // Tasks waiting for the coordinator
+    private final AtomicInteger queuedTasks = new AtomicInteger();
+
+    // Metrics (see common.Metrics); the search threads each count into their own series
+    private static final ThreadLocal<Metrics.Counter> THREAD_HASHES = ThreadLocal.withInitial(() -> Metrics.counter(
+            "worker_hashes_total{thread=\"" + Thread.currentThread().getName() + "\"}", "Candidates hashed, per search thread"));
+    private static final Metrics.Histogram TASK_SECONDS = Metrics.histogram("worker_task_seconds", "Time to search one task");
+    private static final Metrics.Histogram STOP_SECONDS = Metrics.histogram("worker_stop_seconds", "Time from cancelling a running task to its search threads stopping");
+    private static final Metrics.Counter CACHE_LOOKUPS = Metrics.counter("worker_cache_lookups_total", "Targets looked up in the hash cache");
+    private static final Metrics.Counter CACHE_HITS = Metrics.counter("worker_cache_hits_total", "Targets answered from the hash cache");
+    private static final Metrics.Histogram TASK_COMPLETED_RMI = rmiHistogram("taskCompleted");
+    private static final Metrics.Histogram SUBMIT_RMI = rmiHistogram("submitInternalSolution");
+    private static final Metrics.Histogram PROGRESS_RMI = rmiHistogram("reportProgress");
+    private long summaryHashes;
+    private long summaryNanos = System.nanoTime();
 
     protected WorkerNode() throws RemoteException {
+        this(Md5Engines.configured());
+    }
+
+    // For harnesses that supply their own engines (e.g. throttled ones)
+    WorkerNode(Supplier<Md5Engine> engines) throws RemoteException {
         super();
+        this.engines = engines;
     }
 
     public static void main(String[] args) {
@@ -52,6 +132,10 @@ public class WorkerNode extends UnicastRemoteObject implements WorkerCommInterfa
             }
 
             WorkerNode worker = new WorkerNode();
+            if (WARMUP_ONLY) {
+                worker.warmUp();
+                System.exit(0);
+            }
             worker.start();
         } catch (Exception e) {
             e.printStackTrace();
@@ -59,128 +143,392 @@ public class WorkerNode extends UnicastRemoteObject implements WorkerCommInterfa
     }
 
     public void start() throws Exception {
+        warmUp();
+        if (TRANSPORT.equals("binary")) {
+            System.out.println("Connecting to master at " + masterHost + ":" + BINARY_PORT + " (binary transport)");
+            start(BinaryMasterLink.connect(masterHost, BINARY_PORT, BINARY_TIMEOUT_MILLIS));
+            return;
+        }
         String url = "rmi://" + masterHost + ":" + MASTER_PORT + "/" + MASTER_SERVICE;
         System.out.println("Connecting to master at " + url);
-        master = (MasterRepInterface) Naming.lookup(url);
+        start((MasterRepInterface) Naming.lookup(url));
+    }
 
-        master.registerWorker(this);
+    /**
+     * Registers with an already resolved master and starts reporting progress to it.
+     */
+    public void start(MasterRepInterface master) throws RemoteException {
+        this.master = master;
+        String backend = engines instanceof Md5Engines.Backend ? ((Md5Engines.Backend) engines).name : "custom";
+        master.registerWorker(this, backend, capacity());
         System.out.println("Registered with master.");
+        Metrics.gauge("worker_cache_occupancy", "Estimated share of used hash cache slots", () -> hashCache.occupancy(1 << 16));
+        Metrics.gauge("worker_queued_tasks", "Tasks waiting behind the running one", queuedTasks::get);
+        Metrics.expose("worker", this::summary);
+        reporter.scheduleAtFixedRate(this::reportProgress, PROGRESS_MILLIS, PROGRESS_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs the search path on the pool before the worker registers, so that the first chunk
+     * runs compiled code rather than the interpreter and C1, and times the second half of it.
+     * Harnesses that supply their own engines are not warmed up.
+     */
+    void warmUp() throws Exception {
+        if (WARMUP_MILLIS <= 0 || !(engines instanceof Md5Engines.Backend)) {
+            return;
+        }
+        long began = System.nanoTime();
+        warmUpCache = new DigestCache(WARMUP_CACHE_BYTES);
+        warmUpRun(WARMUP_MILLIS / 2);
+        long timed = System.nanoTime();
+        long hashes = warmUpRun(WARMUP_MILLIS - WARMUP_MILLIS / 2);
+        long now = System.nanoTime();
+        warmUpCache = null;
+        measuredRate = hashes * 1e9 / (now - timed);
+        System.out.println(String.format("Warmed up in %.1f s: %.2fM hashes/s on %d thread(s)",
+                (now - began) / 1e9, measuredRate / 1e6, THREADS));
+    }
+
+    // Searches ten-digit candidates on the pool for about that long, against a target none of
+    // them hashes to so the target checks are compiled too. Returns the candidates hashed.
+    private long warmUpRun(long millis) throws Exception {
+        byte[] target = MessageDigest.getInstance("MD5").digest("warm-up".getBytes(StandardCharsets.US_ASCII));
+        SearchToken token = new SearchToken(WARMUP_TASK, Keyspaces.DECIMAL, Md5Engines.TRIAL_START, 9_999_999_999L,
+                new TargetSet(new long[]{WARMUP_TASK}, new byte[][]{target}));
+        warmUpHashes.reset();
+        ForkJoinTask<Void> run = pool.submit(new RangeSearch(token, token.progress.start, token.end()));
+        TimeUnit.MILLISECONDS.sleep(millis);
+        token.cancel();
+        run.join();
+        return warmUpHashes.sum();
+    }
+
+    // Capacity to register with: as timed by the warm-up, or else the backend's trial on one
+    // thread scaled to the search threads; 0 if neither ran, and the master learns it from
+    // the first chunks
+    private double capacity() {
+        if (measuredRate > 0 || !(engines instanceof Md5Engines.Backend)) {
+            return measuredRate;
+        }
+        int cores = Math.min(THREADS, Runtime.getRuntime().availableProcessors());
+        return ((Md5Engines.Backend) engines).hashesPerSecond * cores;
+    }
+
+    private void reportProgress() {
+        SearchToken token = current;
+        if (token == null || token.isCancelled()) {
+            return;
+        }
+        try {
+            long sent = System.nanoTime();
+            master.reportProgress(this, token.taskId(), token.progress.checkpoint());
+            PROGRESS_RMI.since(sent);
+        } catch (RemoteException e) {
+            System.err.println("Failed to report progress: " + e.getMessage());
+        }
+    }
+
+    private static Metrics.Histogram rmiHistogram(String call) {
+        return Metrics.histogram("worker_rmi_seconds{call=\"" + call + "\"}", "Round trip of calls to the master");
+    }
+
+    // One line in place of per-task logging: hash rate since the last line, tasks, cache, queue
+    private synchronized String summary() {
+        long hashes = Metrics.total("worker_hashes_total");
+        long now = System.nanoTime();
+        double rate = (hashes - summaryHashes) * 1e9 / Math.max(1, now - summaryNanos);
+        summaryHashes = hashes;
+        summaryNanos = now;
+        return String.format("%.2fM hashes/s | tasks %d, p50 %.2fs p99 %.2fs | cache hits %d/%d, %.0f%% full | queued %d",
+                rate / 1e6, TASK_SECONDS.count(), TASK_SECONDS.quantile(0.5), TASK_SECONDS.quantile(0.99),
+                CACHE_HITS.get(), CACHE_LOOKUPS.get(), hashCache.occupancy(1 << 16) * 100, queuedTasks.get());
     }
 
     @Override
     public void stop() throws RemoteException {
         System.out.println("Stop signal received.");
-        running = false;
+        dropRanges();
     }
 
     @Override
-    public synchronized void solve(byte[] hash, long start, long end) throws RemoteException {
-        System.out.println("Starting search from " + start + " to " + end);
-
-        // Preemption: Stop existing work
-        if (workerThread != null && workerThread.isAlive()) {
-            System.out.println("Preempting previous task...");
-            running = false;
-            try {
-                workerThread.join();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+    public void truncate(long taskId, long end) throws RemoteException {
+        SearchToken token = tokens.get(taskId);
+        if (token != null) {
+            System.out.println("Task " + taskId + " cut short at " + end + "; the rest went to another worker.");
+            token.truncate(end);
         }
+    }
 
-        String targetHex = toHex(hash);
-        if (hashCache.containsKey(targetHex)) {
-            String found = hashCache.get(targetHex);
-            System.out.println("CACHE HIT: " + found);
-            master.submitInternalSolution(found);
-            return;
-        }
+    @Override
+    public void cancel(long jobId) throws RemoteException {
+        System.out.println("Job " + jobId + " closed.");
+        closeJob(jobId);
+    }
 
-        workerThread = new Thread(() -> {
-            try {
-                bruteForceMultiThreaded(hash, start, end);
-            } catch (Exception e) {
-                e.printStackTrace();
+    // Stops checking a job's target, and cancels the running task if nothing is left to find in it
+    private void closeJob(long jobId) {
+        closedJobs.add(jobId);
+        synchronized (searchLock) {
+            if (current != null && !hasOpenJob(current.targets)) {
+                current.cancel();
             }
-        });
-        workerThread.start();
+        }
     }
 
-    private void bruteForceMultiThreaded(byte[] targetHash, long start, long end) {
-        running = true;
-        int cores = Runtime.getRuntime().availableProcessors();
-        System.out.println("Using " + cores + " threads for computation.");
-
-        if (cores == 1) {
-            searchRange(start, end, targetHash);
-        } else {
-            long totalRange = end - start + 1;
-            long chunkSize = totalRange / cores;
+    private boolean hasOpenJob(TargetSet targets) {
+        for (long jobId : targets.jobIds) {
+            if (!closedJobs.contains(jobId)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-            Thread[] threads = new Thread[cores];
-            for (int i = 0; i < cores; i++) {
-                long tStart = start + (i * chunkSize);
-                long tEnd = (i == cores - 1) ? end : (tStart + chunkSize - 1);
+    // Cancels the running range and the queued ones
+    private void dropRanges() {
+        synchronized (searchLock) {
+            for (SearchToken token : tokens.values()) {
+                token.cancel();
+            }
+        }
+    }
 
-                threads[i] = new Thread(() -> searchRange(tStart, tEnd, targetHash));
-                threads[i].start();
+    @Override
+    public void solve(SearchTask task) throws RemoteException {
+        // Preemption without waiting: the old task's threads stop within CANCEL_CHECK
+        // candidates, and the coordinator starts this one as soon as they have
+        synchronized (searchLock) {
+            if (current != null && !current.isCancelled()) {
+                System.out.println("Preempting task " + current.taskId() + ".");
             }
+            dropRanges();
+            enqueue(task);
+        }
+    }
 
-            // Wait for threads
-            for (Thread t : threads) {
+    @Override
+    public void enqueue(SearchTask task) throws RemoteException {
+        Keyspace keyspace = keyspace(task.keyspace);
+        long end = Math.min(task.end, keyspace.size() - 1);
+        SearchToken token = new SearchToken(task.id, keyspace, task.start, end, new TargetSet(task.jobIds, task.hashes));
+        synchronized (searchLock) {
+            tokens.put(task.id, token);
+            queuedTasks.incrementAndGet();
+            coordinator.execute(() -> {
+                queuedTasks.decrementAndGet();
                 try {
-                    t.join();
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    searchQueued(token);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                } finally {
+                    current = null;
+                    tokens.remove(task.id);
                 }
+            });
+        }
+    }
+
+    // Runs on the coordinator, one queued task after the other
+    private void searchQueued(SearchToken token) throws RemoteException {
+        TargetSet targets = token.targets;
+        synchronized (searchLock) {
+            if (token.isCancelled() || !hasOpenJob(targets)) {
+                return; // Dropped by a later solve or stop, or every job in it is closed
             }
+            current = token;
         }
+        long start = token.progress.start;
+        long end = token.end();
 
-        if (running) {
-             try {
-                master.taskCompleted(this);
-            } catch (RemoteException e) {
-                e.printStackTrace();
+        for (int i = 0; i < targets.size(); i++) {
+            long jobId = targets.jobIds[i];
+            if (closedJobs.contains(jobId)) {
+                continue;
+            }
+            long known = recall(token.keyspace, targets.hashes[i], targets.k0(i), targets.k1(i));
+            if (known != DigestCache.ABSENT) {
+                submit(jobId, token.keyspace.candidate(known));
             }
         }
-        System.out.println("Finished (or stopped) range " + start + "-" + end);
+        if (token.isCancelled()) {
+            return; // Every target was answered from the cache or index
+        }
+
+        if (indexes(token.keyspace) && digestIndex.covers(start, end)) {
+            System.out.println("Range " + start + "-" + end + " already swept, no match.");
+            long sent = System.nanoTime();
+            master.taskCompleted(this, token.taskId());
+            TASK_COMPLETED_RMI.since(sent);
+            return;
+        }
+
+        bruteForceMultiThreaded(token);
     }
 
-    private void searchRange(long tStart, long tEnd, byte[] targetHash) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            for (long val = tStart; val <= tEnd && running; val++) {
-                String candidate = String.valueOf(val);
-                byte[] computedHash = md.digest(candidate.getBytes());
-                
-                // Cache every computed hash (Rainbow Table) - Memory intensive!
-                String computedHex = toHex(computedHash);
-                hashCache.put(computedHex, candidate);
-
-                if (matches(computedHash, targetHash)) {
-                    System.out.println("FOUND MATCH: " + candidate);
-                    running = false; // Stop other local threads
-                    master.submitInternalSolution(candidate);
-                    break;
-                }
+    @Override
+    public String[] lookup(String spec, byte[][] hashes) throws RemoteException {
+        Keyspace keyspace = keyspace(spec);
+        String[] found = new String[hashes.length];
+        for (int i = 0; i < hashes.length; i++) {
+            int[] w = Md5Kernel.words(hashes[i]);
+            long known = recall(keyspace, hashes[i], DigestCache.key(w[0], w[1]), DigestCache.key(w[2], w[3]));
+            found[i] = known == DigestCache.ABSENT ? null : keyspace.candidate(known);
+        }
+        return found;
+    }
+
+    private Keyspace keyspace(String spec) {
+        return keyspaces.computeIfAbsent(spec == null ? Keyspaces.DECIMAL.spec() : spec, Keyspaces::parse);
+    }
+
+    private boolean indexes(Keyspace keyspace) {
+        return digestIndex != null && Keyspaces.isDecimal(keyspace);
+    }
+
+    // The index of a candidate already computed here that hashes to the digest, from the cache
+    // or the index. The cache holds indexes of whatever keyspaces were searched, so a hit
+    // only counts if it hashes to the digest in this one.
+    private long recall(Keyspace keyspace, byte[] hash, long k0, long k1) {
+        long cached = hashCache.get(k0, k1);
+        CACHE_LOOKUPS.inc();
+        // The cache is lossy, so re-hash the hit before trusting it
+        if (cached != DigestCache.ABSENT && Md5Kernel.matches(hash, keyspace, cached)) {
+            CACHE_HITS.inc();
+            System.out.println("CACHE HIT: " + keyspace.candidate(cached));
+            return cached;
+        }
+        if (indexes(keyspace)) {
+            long indexed = digestIndex.get(hash, k0, k1);
+            if (indexed != DigestCache.ABSENT) {
+                System.out.println("INDEX HIT: " + indexed);
+                return indexed;
             }
-        } catch (Exception e) {
+        }
+        return DigestCache.ABSENT;
+    }
+
+    // Reports a solution and closes its job locally
+    private void submit(long jobId, String solution) throws RemoteException {
+        closeJob(jobId);
+        long sent = System.nanoTime();
+        master.submitInternalSolution(jobId, solution);
+        SUBMIT_RMI.since(sent);
+    }
+
+    private void bruteForceMultiThreaded(SearchToken token) {
+        long start = token.progress.start;
+        long started = System.nanoTime();
+        pool.invoke(new RangeSearch(token, start, token.end()));
+        TASK_SECONDS.since(started);
+
+        if (token.isCancelled()) {
+            STOP_SECONDS.since(token.cancelledAt());
+            return; // Not reported: the master has dropped or reassigned it
+        }
+        if (indexes(token.keyspace) && start <= token.end()) {
+            digestIndex.markSwept(start, token.end());
+        }
+        try {
+            // A cancel may still race this report; the master ignores ids it no longer has in flight
+            long sent = System.nanoTime();
+            master.taskCompleted(this, token.taskId());
+            TASK_COMPLETED_RMI.since(sent);
+        } catch (RemoteException e) {
             e.printStackTrace();
         }
     }
 
-    private boolean matches(byte[] h1, byte[] h2) {
-        if (h1.length != h2.length)
-            return false;
-        for (int i = 0; i < h1.length; i++) {
-            if (h1[i] != h2[i])
-                return false;
+    /**
+     * Splits a range into sub-ranges for the pool. Leaves are searched sequentially.
+     */
+    private class RangeSearch extends RecursiveAction {
+        private final SearchToken token;
+        private final long start;
+        private final long end;
+
+        RangeSearch(SearchToken token, long start, long end) {
+            this.token = token;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            // Sub-ranges past a truncated end were handed to another worker
+            if (token.isCancelled() || start > token.end()) {
+                return;
+            }
+            long size = end - start + 1;
+            if (size > MAX_GRAIN || (size > MIN_GRAIN && getSurplusQueuedTaskCount() <= 2)) {
+                long mid = start + size / 2;
+                invokeAll(new RangeSearch(token, start, mid - 1), new RangeSearch(token, mid, end));
+            } else {
+                long checked = searchRange(start, Math.min(end, token.end()), token);
+                // A cancelled leaf may be incomplete
+                if (!token.isCancelled() && checked >= start) {
+                    token.progress.done(start, checked);
+                }
+            }
         }
-        return true;
     }
 
-    private String toHex(byte[] bytes) {
-        BigInteger bi = new BigInteger(1, bytes);
-        return String.format("%032x", bi);
+    /**
+     * Searches [tStart, tEnd] until the task is cancelled or truncated below the candidate.
+     * @return The highest index checked, or tStart - 1
+     */
+    private long searchRange(long tStart, long tEnd, SearchToken token) {
+        TargetSet targets = token.targets;
+        boolean warmUp = token.taskId() == WARMUP_TASK;
+        DigestCache cache = warmUp ? warmUpCache : hashCache;
+        DigestIndex index = indexes(token.keyspace) && !warmUp ? digestIndex : null;
+        try {
+            Md5Engine engine = engines.get();
+            int lanes = engine.lanes();
+            engine.seek(token.keyspace, tStart);
+            long base;
+            long nextCheck = tStart + CANCEL_CHECK;
+            for (base = tStart; base <= tEnd; base += lanes, engine.next()) {
+                if (base >= nextCheck) {
+                    if (token.isCancelled() || base > token.end()) {
+                        break;
+                    }
+                    nextCheck = base + CANCEL_CHECK;
+                }
+                engine.hash();
+                // The last batch may run past the end of the range
+                int count = (int) Math.min(lanes, tEnd - base + 1);
+                for (int lane = 0; lane < count; lane++) {
+                    long val = base + lane;
+
+                    // Cache every computed hash (Rainbow Table), bounded by CACHE_BYTES
+                    long k0 = DigestCache.key(engine.h0(lane), engine.h1(lane));
+                    long k1 = DigestCache.key(engine.h2(lane), engine.h3(lane));
+                    cache.put(k0, k1, val);
+                    if (index != null) {
+                        index.put(k0, k1, val);
+                    }
+
+                    // One sweep serves every job the task carries; jobs may share a target
+                    for (int match = targets.indexOf(k0, k1); match >= 0; match = targets.nextIndexOf(match, k0, k1)) {
+                        if (closedJobs.contains(targets.jobIds[match])) {
+                            continue;
+                        }
+                        String candidate = engine.candidate(lane);
+                        System.out.println("FOUND MATCH: " + candidate + " (job " + targets.jobIds[match] + ")");
+                        // Stops other local threads once no other job in the task is open
+                        submit(targets.jobIds[match], candidate);
+                    }
+                }
+            }
+            if (warmUp) {
+                warmUpHashes.add(Math.min(base, tEnd + 1) - tStart);
+            } else {
+                THREAD_HASHES.get().add(Math.min(base, tEnd + 1) - tStart);
+            }
+            return Math.min(base, tEnd + 1) - 1;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return tStart - 1;
+        }
     }
 }
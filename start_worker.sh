@@ -0,0 +1,33 @@
+#!/usr/bin/env bash
+# Starts a worker that is at full speed when it registers: its classes come from a
+# class-data-sharing (AppCDS) archive, and it warms up its search path before registering
+# (-Dworker.warmupMillis, see src/worker/WorkerNode.java). The archive, worker.jsa, is
+# recorded by a warm-up-only run the first time, and again whenever the classes are rebuilt.
+# Usage: ./start_worker.sh <master-host> [-Dworker.name=value...]
+# Example: ./start_worker.sh 192.168.1.50 -Dworker.backend=native
+
+MASTER=${1:-localhost}
+shift
+JAVA_OPTS="--add-modules jdk.incubator.vector,jdk.incubator.foreign --enable-native-access=ALL-UNNAMED"
+JAR=worker.jar
+ARCHIVE=worker.jsa
+
+if [ ! -f bin/worker/WorkerNode.class ]; then
+    echo "No compiled worker in bin; run ./compile.sh first."
+    exit 1
+fi
+
+# AppCDS only archives classes loaded from jars: package bin whenever it changed
+if [ ! -f "$JAR" ] || [ -n "$(find bin -name '*.class' -newer "$JAR" | head -1)" ]; then
+    jar cf "$JAR" -C bin . || exit 1
+fi
+
+# An archive only matches the jar and JDK it was recorded with; the JVM ignores one that does not
+if [ ! -f "$ARCHIVE" ] || [ "$JAR" -nt "$ARCHIVE" ]; then
+    echo "Recording class-data-sharing archive $ARCHIVE..."
+    rm -f "$ARCHIVE"
+    java -XX:ArchiveClassesAtExit="$ARCHIVE" $JAVA_OPTS -Dworker.warmupOnly=true "$@" -cp "$JAR" worker.WorkerNode > cds.log 2>&1 \
+        || echo "Recording failed (see cds.log); starting without an archive."
+fi
+
+exec java -XX:SharedArchiveFile="$ARCHIVE" -Xshare:auto $JAVA_OPTS "$@" -cp "$JAR" worker.WorkerNode "$MASTER"
@@ -0,0 +1,161 @@
+package client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import common.SearchTask;
+import common.WorkerCommInterface;
+
+class ChunkSchedulerTest {
+
+    private static final long LEASE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    // A worker as the scheduler sees it: only its identity matters
+    private static class Worker implements WorkerCommInterface {
+        @Override
+        public void solve(SearchTask task) {
+        }
+
+        @Override
+        public void enqueue(SearchTask task) {
+        }
+
+        @Override
+        public String[] lookup(String keyspace, byte[][] hashes) {
+            return new String[hashes.length];
+        }
+
+        @Override
+        public void truncate(long taskId, long end) {
+        }
+
+        @Override
+        public void cancel(long jobId) {
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+
+    @Test
+    void droppedCopyHoldsTheLeaseUntilItsWorkerMovesOn() throws InterruptedException {
+        ChunkScheduler scheduler = new ChunkScheduler();
+        Worker slow = new Worker();
+        Worker fast = new Worker();
+        scheduler.addJob(1, 0, (1 << 24) - 1, false);
+        while (scheduler.assign(slow, 1) != null) {
+            // The slow worker takes the whole range
+        }
+        scheduler.seedRate(fast, 1e9);
+        ChunkScheduler.Chunk copy = scheduler.speculate(fast);
+        assertNotNull(copy);
+        ChunkScheduler.Chunk original = copy.twin;
+
+        // A second job queues a chunk behind the copy
+        scheduler.addJob(2, 1 << 24, (1 << 24) + (1 << 20) - 1, false);
+        ChunkScheduler.Chunk behind = scheduler.assign(fast, 2);
+        assertNotNull(behind);
+        assertEquals(2, scheduler.queued(fast));
+        assertEquals(0, behind.startedAt);
+
+        // The original finishes first: the copy is dropped, but the worker is still on it
+        assertSame(original, scheduler.completed(slow, original.id));
+        assertSame(copy, scheduler.cancelTwin(original));
+        assertTrue(copy.dropped);
+        assertEquals(copy.start - 1, copy.end);
+        assertEquals(2, scheduler.queued(fast));
+        assertEquals(0, behind.startedAt);
+
+        // Its reports still renew the lease
+        Thread.sleep(2 * TimeUnit.NANOSECONDS.toMillis(LEASE_NANOS));
+        scheduler.progress(fast, copy.id, copy.start + 10);
+        assertFalse(scheduler.expired(LEASE_NANOS).contains(fast));
+
+        // Once the worker reports it, the chunk behind starts its lease
+        assertSame(copy, scheduler.completed(fast, copy.id));
+        assertEquals(1, scheduler.queued(fast));
+        assertTrue(behind.startedAt != 0);
+        assertFalse(scheduler.expired(LEASE_NANOS).contains(fast));
+    }
+
+    @Test
+    void droppedCopyQueuedBehindStartsItsLeaseInTurn() {
+        ChunkScheduler scheduler = new ChunkScheduler();
+        Worker slow = new Worker();
+        Worker fast = new Worker();
+        scheduler.addJob(1, 0, (1 << 24) - 1, false);
+        ChunkScheduler.Chunk running = scheduler.assign(fast, 1);
+        while (scheduler.assign(slow, 1) != null) {
+            // The slow worker takes the rest of the range
+        }
+        scheduler.seedRate(fast, 1e9);
+        ChunkScheduler.Chunk copy = scheduler.speculate(fast);
+        assertNotNull(copy);
+        ChunkScheduler.Chunk original = copy.twin;
+        long started = running.startedAt;
+
+        // Queued behind the fast worker's running chunk, the copy is dropped before it starts
+        scheduler.completed(slow, original.id);
+        assertSame(copy, scheduler.cancelTwin(original));
+        assertEquals(2, scheduler.queued(fast));
+        assertEquals(started, running.startedAt);
+        assertEquals(0, copy.startedAt);
+
+        // The worker reaches it after the running chunk, stops it at once and reports it
+        scheduler.completed(fast, running.id);
+        assertTrue(copy.startedAt != 0);
+        assertSame(copy, scheduler.completed(fast, copy.id));
+        assertTrue(scheduler.isIdle(fast));
+    }
+
+    @Test
+    void droppedCopyGivesNothingBackOnFailure() {
+        ChunkScheduler scheduler = new ChunkScheduler();
+        Worker slow = new Worker();
+        Worker fast = new Worker();
+        scheduler.addJob(1, 0, (1 << 24) - 1, false);
+        ChunkScheduler.Chunk running = scheduler.assign(fast, 1);
+        while (scheduler.assign(slow, 1) != null) {
+            // The slow worker takes the rest of the range
+        }
+        scheduler.seedRate(fast, 1e9);
+        ChunkScheduler.Chunk copy = scheduler.speculate(fast);
+        scheduler.completed(slow, copy.twin.id);
+        scheduler.cancelTwin(copy.twin);
+
+        List<long[]> requeued = scheduler.failed(fast);
+        assertEquals(1, requeued.size());
+        assertEquals(running.start, requeued.get(0)[0]);
+        assertEquals(running.end, requeued.get(0)[1]);
+    }
+
+    @Test
+    void droppedCopyGoesWithItsJobs() {
+        ChunkScheduler scheduler = new ChunkScheduler();
+        Worker slow = new Worker();
+        Worker fast = new Worker();
+        scheduler.addJob(1, 0, (1 << 24) - 1, false);
+        scheduler.assign(fast, 1);
+        while (scheduler.assign(slow, 1) != null) {
+            // The slow worker takes the rest of the range
+        }
+        scheduler.seedRate(fast, 1e9);
+        ChunkScheduler.Chunk copy = scheduler.speculate(fast);
+        scheduler.completed(slow, copy.twin.id);
+        scheduler.cancelTwin(copy.twin);
+
+        // The worker skips a task whose jobs are all closed without reporting it, so the
+        // scheduler must not wait for the report either
+        scheduler.dropJob(1);
+        assertEquals(0, scheduler.queued());
+    }
+}
@@ -0,0 +1,58 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import client.ClientCommInterface;
+
+class LoadGeneratorTest {
+
+    @TempDir
+    static Path dir;
+
+    @Test
+    void replaysNumbersAndMaskCandidates() throws Exception {
+        Path workload = dir.resolve("workload.txt");
+        Path report = dir.resolve("load_report.csv");
+        Files.write(workload, List.of("3000000", "ab12", "-5"));
+        // Read when LoadGenerator is first loaded
+        System.setProperty("load.file", workload.toString());
+        System.setProperty("load.report", report.toString());
+        System.setProperty("load.timeoutSeconds", "5");
+
+        MockServer server = new MockServer();
+        LoadGenerator generator = new LoadGenerator(server);
+        // A team that answers every problem at once from the workload
+        Map<String, Integer> sizes = new ConcurrentHashMap<>();
+        server.register("team", new ClientCommInterface() {
+            @Override
+            public void publishProblem(byte[] hash, int problemsize) throws Exception {
+                for (String candidate : List.of("3000000", "ab12")) {
+                    if (Arrays.equals(hash, MockServer.getMD5(candidate))) {
+                        sizes.put(candidate, problemsize);
+                        generator.submitted("team", candidate, System.nanoTime());
+                    }
+                }
+            }
+        });
+
+        generator.run();
+
+        assertEquals(6_000_000, sizes.get("3000000"));
+        assertEquals(1_000_000, sizes.get("ab12")); // The smallest size: not a number
+        List<String> lines = Files.readAllLines(report);
+        assertEquals(3, lines.size()); // Header, then the two problems; -5 is skipped
+        assertTrue(lines.get(1).startsWith("0,3000000,team,") && lines.get(1).endsWith(",solved"), lines.get(1));
+        assertTrue(lines.get(2).startsWith("1,ab12,team,") && lines.get(2).endsWith(",solved"), lines.get(2));
+    }
+}
@@ -0,0 +1,75 @@
+package worker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DigestIndexTest {
+
+    private static final int THREADS = 4;
+    private static final int PER_THREAD = 2000;
+
+    @TempDir
+    Path dir;
+
+    private static byte[] md5(long candidate) throws Exception {
+        return MessageDigest.getInstance("MD5").digest(Long.toString(candidate).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // Any keys do, as long as put and get agree; the lookup re-hashes the candidate
+    private static long k0(long candidate) {
+        return candidate * 0x9E3779B97F4A7C15L + 1;
+    }
+
+    @Test
+    void threadsInsertAndLookUpInParallel() throws Exception {
+        DigestIndex index = new DigestIndex(dir.toFile(), 1 << 20);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            long first = (long) t * PER_THREAD;
+            Thread thread = new Thread(() -> {
+                for (long c = first; c < first + PER_THREAD; c++) {
+                    index.put(k0(c), c, c);
+                    index.put(k0(c), c, c); // A repeat is not stored twice
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (long c = 0; c < (long) THREADS * PER_THREAD; c++) {
+            assertEquals(c, index.get(md5(c), k0(c), c));
+        }
+        assertEquals(DigestCache.ABSENT, index.get(md5(-1), k0(-1), -1));
+    }
+
+    @Test
+    void sweptRangesAreLoggedByTheFlush() throws Exception {
+        DigestIndex index = new DigestIndex(dir.toFile(), 1 << 20);
+        for (long c = 0; c < 100; c++) {
+            index.put(k0(c), c, c);
+        }
+        index.markSwept(0, 49);
+        index.markSwept(50, 99);
+
+        index.flush();
+        assertTrue(index.covers(0, 99));
+
+        DigestIndex reopened = new DigestIndex(dir.toFile(), 1 << 20);
+        assertTrue(reopened.covers(0, 99));
+        assertFalse(reopened.covers(0, 100));
+        assertEquals(42, reopened.get(md5(42), k0(42), 42));
+    }
+}
@@ -0,0 +1,53 @@
+#!/usr/bin/env bash
+# Runs a mixed cluster: one worker over RMI and one over the binary transport. Both must
+# register, get work, and the problems must be solved.
+# Rebuild
+rm -rf bin
+mkdir -p bin
+javac --add-modules jdk.incubator.vector,jdk.incubator.foreign -d bin src/common/*.java src/server/*.java src/client/*.java src/worker/*.java
+
+# Kill any existing java processes
+pkill -f "java.*MockServer"
+pkill -f "java.*CrackerClient"
+pkill -f "java.*WorkerNode"
+
+sleep 1
+
+# Start Server
+echo "Starting MockServer..."
+# Workers warm up for about 2 s before they register (-Dworker.warmupMillis)
+(sleep 12; echo "publish 12345"; sleep 4; echo "publish 20000000"; sleep 15) | java -cp bin server.MockServer > server.log 2>&1 &
+SERVER_PID=$!
+sleep 2
+
+# Start Client, also listening for binary workers
+echo "Starting CrackerClient..."
+java -Dclient.binaryPort=1100 -cp bin client.CrackerClient localhost > client.log 2>&1 &
+CLIENT_PID=$!
+sleep 2
+
+# Start one Worker per transport
+echo "Starting WorkerNodes..."
+java --add-modules jdk.incubator.vector -Dworker.backend=vector -Dworker.threads=1 -cp bin worker.WorkerNode localhost > worker1.log 2>&1 &
+WORKER1_PID=$!
+java --add-modules jdk.incubator.vector -Dworker.backend=vector -Dworker.threads=1 -Dworker.transport=binary -cp bin worker.WorkerNode localhost > worker2.log 2>&1 &
+WORKER2_PID=$!
+
+sleep 29
+
+echo "--- Server Log ---"
+cat server.log
+echo "--- Client Log ---"
+cat client.log
+echo "--- Worker 1 Log (RMI) ---"
+cat worker1.log
+echo "--- Worker 2 Log (binary) ---"
+cat worker2.log
+
+echo "--- Result ---"
+grep -q "Total workers: 2" client.log && echo "Both workers registered: OK" || echo "Both workers registered: MISSING"
+grep -q "hashes/s" worker2.log && echo "Binary worker searched: OK" || echo "Binary worker searched: MISSING"
+[ "$(grep -c "SOLUTION SUBMITTED" server.log)" -eq 2 ] && echo "Solutions submitted: OK" || echo "Solutions submitted: MISSING"
+
+echo "Killing processes..."
+kill $SERVER_PID $CLIENT_PID $WORKER1_PID $WORKER2_PID
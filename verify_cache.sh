@@ -2,7 +2,7 @@
 # Rebuild
 rm -rf bin
 mkdir -p bin
-javac -d bin src/common/*.java src/server/*.java src/client/*.java src/worker/*.java
+javac --add-modules jdk.incubator.vector,jdk.incubator.foreign -d bin src/common/*.java src/server/*.java src/client/*.java src/worker/*.java
 
 # Kill any existing java processes (be careful with this in prod, but ok for test env)
 pkill -f "java.*MockServer"
@@ -13,20 +13,23 @@ sleep 1
 
 # Start Server
 echo "Starting MockServer..."
-# Publish twice to trigger cache
-(sleep 5; echo "publish 12345"; sleep 15; echo "publish 12345"; sleep 5) | java -cp bin server.MockServer > server.log 2>&1 &
+# Workers warm up for about 2 s before they register (-Dworker.warmupMillis).
+# 4321 is hashed on the way to 12345 but never solved, so only the worker's cache knows it
+# (the lookup); 12345 again is answered from the client's memory of solved problems.
+(sleep 10; echo "publish 12345"; sleep 12; echo "publish 4321"; sleep 4; echo "publish 12345"; sleep 4) | java -cp bin server.MockServer > server.log 2>&1 &
 SERVER_PID=$!
 sleep 2
 
-# Start Client (connecting to localhost server)
+# Start Client (connecting to localhost server). Sequential order, so the first chunk
+# sweeps 0 to 12345 in order.
 echo "Starting CrackerClient..."
-java -cp bin client.CrackerClient localhost > client.log 2>&1 &
+java -Dclient.order=sequential -cp bin client.CrackerClient localhost > client.log 2>&1 &
 CLIENT_PID=$!
 sleep 2
 
 # Start Worker (connecting to localhost master)
 echo "Starting WorkerNode..."
-java -cp bin worker.WorkerNode localhost > worker.log 2>&1 &
+java --add-modules jdk.incubator.vector -Dworker.backend=vector -cp bin worker.WorkerNode localhost > worker.log 2>&1 &
 WORKER_PID=$!
 sleep 2
 
@@ -40,5 +43,11 @@ cat client.log
 echo "--- Worker Log ---"
 cat worker.log
 
+echo "--- Result ---"
+grep -q "answered from the workers' digest caches: 4321" client.log && echo "Answered from the worker's cache: OK" || echo "Answered from the worker's cache: MISSING"
+grep -q "CACHE HIT: 4321" worker.log && echo "Worker cache hit: OK" || echo "Worker cache hit: MISSING"
+grep -q "Problem solved before: 12345" client.log && echo "Answered from the client's memory: OK" || echo "Answered from the client's memory: MISSING"
+[ "$(grep -c "SOLUTION SUBMITTED" server.log)" -eq 3 ] && echo "Solutions submitted: OK" || echo "Solutions submitted: MISSING"
+
 echo "Killing processes..."
 kill $SERVER_PID $CLIENT_PID $WORKER_PID
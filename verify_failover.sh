@@ -0,0 +1,60 @@
+#!/usr/bin/env bash
+# Kills a worker in the middle of a search: its chunk must be re-queued from the
+# last checkpoint it reported, and the remaining worker must still find the solution.
+# Rebuild
+rm -rf bin
+mkdir -p bin
+javac --add-modules jdk.incubator.vector,jdk.incubator.foreign -d bin src/common/*.java src/server/*.java src/client/*.java src/worker/*.java
+
+# Kill any existing java processes
+pkill -f "java.*MockServer"
+pkill -f "java.*CrackerClient"
+pkill -f "java.*WorkerNode"
+
+sleep 1
+
+# Start Server
+echo "Starting MockServer..."
+# A problem large enough to still be running when the first worker dies
+# Workers warm up for about 2 s before they register (-Dworker.warmupMillis)
+(sleep 12; echo "publish 80000000"; sleep 40) | java -cp bin server.MockServer > server.log 2>&1 &
+SERVER_PID=$!
+sleep 2
+
+# Start Client (connecting to localhost server), with a short lease. Sequential order, so the
+# solution is not reached by chance before the kill.
+echo "Starting CrackerClient..."
+java -Dclient.leaseMillis=3000 -Dclient.order=sequential -cp bin client.CrackerClient localhost > client.log 2>&1 &
+CLIENT_PID=$!
+sleep 2
+
+# Start two Workers (connecting to localhost master)
+echo "Starting WorkerNodes..."
+java --add-modules jdk.incubator.vector -Dworker.backend=vector -Dworker.threads=1 -cp bin worker.WorkerNode localhost > worker1.log 2>&1 &
+WORKER1_PID=$!
+java --add-modules jdk.incubator.vector -Dworker.backend=vector -Dworker.threads=1 -cp bin worker.WorkerNode localhost > worker2.log 2>&1 &
+WORKER2_PID=$!
+
+# Let the search run for a few seconds, then kill the first worker without warning
+sleep 12
+echo "Killing worker 1 mid-run..."
+kill -9 $WORKER1_PID
+
+# Wait for the lease to expire and the search to finish
+sleep 30
+
+echo "--- Server Log ---"
+cat server.log
+echo "--- Client Log ---"
+cat client.log
+echo "--- Worker 1 Log (Tail) ---"
+tail -n 10 worker1.log
+echo "--- Worker 2 Log (Tail) ---"
+tail -n 10 worker2.log
+
+echo "--- Result ---"
+grep -q "Re-queued" client.log && echo "Killed worker's range re-queued: OK" || echo "Killed worker's range re-queued: MISSING"
+grep -q "SOLUTION SUBMITTED" server.log && echo "Solution submitted: OK" || echo "Solution submitted: MISSING"
+
+echo "Killing processes..."
+kill $SERVER_PID $CLIENT_PID $WORKER2_PID
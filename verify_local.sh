@@ -2,7 +2,7 @@
 # Rebuild
 rm -rf bin
 mkdir -p bin
-javac -d bin src/common/*.java src/server/*.java src/client/*.java src/worker/*.java
+javac --add-modules jdk.incubator.vector,jdk.incubator.foreign -d bin src/common/*.java src/server/*.java src/client/*.java src/worker/*.java
 
 # Kill any existing java processes (be careful with this in prod, but ok for test env)
 pkill -f "java.*MockServer"
@@ -13,7 +13,8 @@ sleep 1
 
 # Start Server
 echo "Starting MockServer..."
-(sleep 5; echo "publish 12345"; sleep 10) | java -cp bin server.MockServer > server.log 2>&1 &
+# Workers warm up for about 2 s before they register (-Dworker.warmupMillis)
+(sleep 10; echo "publish 12345"; sleep 10) | java -cp bin server.MockServer > server.log 2>&1 &
 SERVER_PID=$!
 sleep 2
 
@@ -25,7 +26,7 @@ sleep 2
 
 # Start Worker (connecting to localhost master)
 echo "Starting WorkerNode..."
-java -cp bin worker.WorkerNode localhost > worker.log 2>&1 &
+java --add-modules jdk.incubator.vector -Dworker.backend=vector -cp bin worker.WorkerNode localhost > worker.log 2>&1 &
 WORKER_PID=$!
 sleep 2
 
@@ -36,7 +37,7 @@ sleep 2
 # WE can modify the script to pipe input.
 
 # Wait a bit
-sleep 5
+sleep 9
 
 echo "--- Server Log ---"
 cat server.log
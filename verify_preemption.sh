@@ -2,7 +2,7 @@
 # Rebuild
 rm -rf bin
 mkdir -p bin
-javac -d bin src/common/*.java src/server/*.java src/client/*.java src/worker/*.java
+javac --add-modules jdk.incubator.vector,jdk.incubator.foreign -d bin src/common/*.java src/server/*.java src/client/*.java src/worker/*.java
 
 # Kill any existing java processes
 pkill -f "java.*MockServer"
@@ -19,7 +19,7 @@ echo "Starting MockServer..."
 # Sleep 5
 # "publish 12345" (Solvable quickly)
 (
-    sleep 5; 
+    sleep 8; 
     echo "publish 99999999"; 
     sleep 5; 
     echo "publish 12345"; 
@@ -36,7 +36,7 @@ sleep 2
 
 # Start Worker (connecting to localhost master)
 echo "Starting WorkerNode..."
-java -cp bin worker.WorkerNode localhost > worker.log 2>&1 &
+java --add-modules jdk.incubator.vector -Dworker.backend=vector -cp bin worker.WorkerNode localhost > worker.log 2>&1 &
 WORKER_PID=$!
 sleep 2
 
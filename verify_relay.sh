@@ -0,0 +1,61 @@
+#!/usr/bin/env bash
+# Runs two workers behind a sub-master: the master sees a single worker, and the problems
+# must still be solved through the relay.
+# Rebuild
+rm -rf bin
+mkdir -p bin
+javac --add-modules jdk.incubator.vector,jdk.incubator.foreign -d bin src/common/*.java src/server/*.java src/client/*.java src/worker/*.java
+
+# Kill any existing java processes
+pkill -f "java.*MockServer"
+pkill -f "java.*CrackerClient"
+pkill -f "java.*SubMaster"
+pkill -f "java.*WorkerNode"
+
+sleep 1
+
+# Start Server
+echo "Starting MockServer..."
+# Workers warm up for about 2 s before they register (-Dworker.warmupMillis)
+(sleep 14; echo "publish 12345"; sleep 4; echo "publish 30000000"; sleep 20) | java -cp bin server.MockServer > server.log 2>&1 &
+SERVER_PID=$!
+sleep 2
+
+# Start Client (the root master)
+echo "Starting CrackerClient..."
+java -cp bin client.CrackerClient localhost > client.log 2>&1 &
+CLIENT_PID=$!
+sleep 2
+
+# Start the SubMaster, with its own registry for the workers behind it
+echo "Starting SubMaster..."
+java -Dclient.port=1097 -cp bin client.SubMaster localhost > relay.log 2>&1 &
+RELAY_PID=$!
+sleep 2
+
+echo "Starting WorkerNodes..."
+java --add-modules jdk.incubator.vector -Dworker.backend=vector -Dworker.threads=1 -Dworker.masterPort=1097 -cp bin worker.WorkerNode localhost > worker1.log 2>&1 &
+WORKER1_PID=$!
+java --add-modules jdk.incubator.vector -Dworker.backend=vector -Dworker.threads=1 -Dworker.masterPort=1097 -cp bin worker.WorkerNode localhost > worker2.log 2>&1 &
+WORKER2_PID=$!
+
+sleep 34
+
+echo "--- Server Log ---"
+cat server.log
+echo "--- Client Log ---"
+cat client.log
+echo "--- SubMaster Log ---"
+cat relay.log
+echo "--- Worker 1 Log (Tail) ---"
+tail -n 10 worker1.log
+echo "--- Worker 2 Log (Tail) ---"
+tail -n 10 worker2.log
+
+echo "--- Result ---"
+grep -q "Total workers: 1" client.log && ! grep -q "Total workers: 2" client.log && echo "Master sees one worker: OK" || echo "Master sees one worker: MISSING"
+grep -q "Total workers: 2" relay.log && echo "Sub-master has both workers: OK" || echo "Sub-master has both workers: MISSING"
+[ "$(grep -c "SOLUTION SUBMITTED" server.log)" -eq 2 ] && echo "Solutions submitted: OK" || echo "Solutions submitted: MISSING"
+
+echo "Killing processes..."
+kill $SERVER_PID $CLIENT_PID $RELAY_PID $WORKER1_PID $WORKER2_PID